@@ -0,0 +1,122 @@
+package com.video.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * A player seeking into a video (one ranged request for a chunk at a random offset) against the
+ * full-body download it replaced. There is no connector here, so both go through the stream path
+ * that Tomcat's sendfile would otherwise take over; the response body is counted and discarded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RangeResourceWriterBenchmark {
+
+    private static final int SEEK_BYTES = 1024 * 1024;
+
+    @Param({"16777216", "134217728"})
+    private int sizeBytes;
+
+    private final RangeResourceWriter writer = new RangeResourceWriter();
+    private Path file;
+    private Resource resource;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("range-bench", ".mp4");
+        byte[] block = new byte[SEEK_BYTES];
+        ThreadLocalRandom.current().nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int written = 0; written < sizeBytes; written += block.length) {
+                out.write(block);
+            }
+        }
+        resource = new FileSystemResource(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long seek() throws IOException {
+        long start = ThreadLocalRandom.current().nextLong(sizeBytes - SEEK_BYTES);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=" + start + "-" + (start + SEEK_BYTES - 1));
+        return write(request);
+    }
+
+    @Benchmark
+    public long fullBody() throws IOException {
+        return write(new MockHttpServletRequest("GET", "/api/videos/1/download"));
+    }
+
+    private long write(MockHttpServletRequest request) throws IOException {
+        CountingResponse response = new CountingResponse();
+        writer.write(request, response, resource, "video/mp4", null);
+        return response.out.count;
+    }
+
+    private static final class CountingResponse extends MockHttpServletResponse {
+        private final CountingOutputStream out = new CountingOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+        }
+    }
+}
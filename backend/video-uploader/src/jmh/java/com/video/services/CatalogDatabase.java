@@ -0,0 +1,102 @@
+package com.video.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import com.video.VideoUploaderApplication;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * The application booted against an embedded PostgreSQL holding a synthetic catalog, so database
+ * benchmarks run the real repository queries on a table of a chosen size. Rows are inserted with
+ * one set-based statement per table, created one second apart in id order, every tenth one private.
+ * Titles are three words from {@link #WORDS} followed by "take" and the row number, so a word
+ * appears in about three titles in sixteen and "take n" in only a handful.
+ */
+final class CatalogDatabase implements AutoCloseable {
+
+    static final String[] WORDS = {
+            "alpha", "bravo", "canyon", "delta", "ember", "forest", "glacier", "harbor",
+            "island", "jungle", "kayak", "lagoon", "meadow", "nebula", "ocean", "prairie"
+    };
+
+    private final EmbeddedPostgres postgres;
+    private final Path storage;
+    private final ConfigurableApplicationContext app;
+
+    CatalogDatabase(int rows) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        storage = Files.createTempDirectory("catalog-bench");
+        app = SpringApplication.run(VideoUploaderApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--jwt.secret=" + UUID.randomUUID() + UUID.randomUUID(),
+                "--storage.location=" + storage);
+        seed(rows);
+    }
+
+    <T> T bean(Class<T> type) {
+        return app.getBean(type);
+    }
+
+    // the embedded server listens on a random port, so benchmarks can also go through HTTP
+    int port() {
+        return app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    JdbcTemplate jdbc() {
+        return app.getBean(JdbcTemplate.class);
+    }
+
+    @Override
+    public void close() throws IOException {
+        app.close();
+        postgres.close();
+        FileSystemUtils.deleteRecursively(storage);
+    }
+
+    private void seed(int rows) {
+        JdbcTemplate jdbc = jdbc();
+        Long uploader = jdbc.queryForObject("""
+                INSERT INTO users (username, email, password, created_at)
+                VALUES ('catalog', 'catalog@example.com', 'x', now()) RETURNING id
+                """, Long.class);
+
+        jdbc.update("""
+                INSERT INTO raw_files (id, original_filename, stored_filename, content_type, size_bytes, file_path, created_at)
+                SELECT g, 'clip.mp4', 'catalog-' || g || '.mp4', 'video/mp4', 1, 'catalog-' || g || '.mp4', now()
+                FROM generate_series(1, ?) g
+                """, rows);
+
+        String words = "ARRAY['" + String.join("','", WORDS) + "']";
+        jdbc.update("""
+                INSERT INTO videos (id, title, description, is_private, uploader_id, video_file_id,
+                                    processing_status, processing_attempts, created_at)
+                SELECT g,
+                       (%1$s)[1 + g %% 16] || ' ' || (%1$s)[1 + (g / 16) %% 16] || ' '
+                           || (%1$s)[1 + (g / 256) %% 16] || ' take ' || g,
+                       'Filmed near the ' || (%1$s)[1 + (g / 4096) %% 16] || ' at dawn',
+                       g %% 10 = 0, ?, g, 'READY', 0,
+                       TIMESTAMPTZ '2020-01-01' + g * INTERVAL '1 second'
+                FROM generate_series(1, ?) g
+                """.formatted(words), uploader, rows);
+
+        // Hibernate allocates ids from these, so they must move past the seeded rows
+        jdbc.queryForObject("SELECT setval('videos_seq', ?)", Long.class, rows + 1000L);
+        jdbc.queryForObject("SELECT setval('raw_files_seq', ?)", Long.class, rows + 1000L);
+        jdbc.execute("VACUUM ANALYZE videos");
+        jdbc.execute("VACUUM ANALYZE raw_files");
+    }
+}
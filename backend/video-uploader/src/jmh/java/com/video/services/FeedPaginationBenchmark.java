@@ -0,0 +1,107 @@
+package com.video.services;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.video.dto.VideoPage;
+
+/**
+ * One feed page through {@link VideoService#list} as the table grows. With the keyset on
+ * (createdAt, id) a page costs an index seek plus 25 rows, so the first page and one 90% of the
+ * way down should take about as long at every size. The {@code *Request} benchmarks send the same
+ * pages over HTTP to the running server, so they include the controller's ETag check and JSON
+ * writing; {@code notModifiedRequest} is a revalidation that ends in a 304.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedPaginationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private CatalogDatabase catalog;
+    private VideoService videoService;
+    private String deepCursor;
+    private HttpClient http;
+    private URI firstPageUri;
+    private URI deepPageUri;
+    private String feedEtag;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        catalog = new CatalogDatabase(rows);
+        videoService = catalog.bean(VideoService.class);
+
+        // the row 90% of the way down the anonymous feed (every tenth video is private), as the
+        // previous page's cursor would name it
+        int publicRows = rows - rows / 10;
+        deepCursor = catalog.jdbc().queryForObject("""
+                SELECT created_at, id FROM videos WHERE NOT is_private
+                ORDER BY created_at DESC, id DESC OFFSET ? LIMIT 1
+                """, (rs, n) -> new VideoService.Cursor(rs.getObject("created_at", OffsetDateTime.class), rs.getLong("id"), null),
+                publicRows * 9 / 10).encode();
+
+        http = HttpClient.newHttpClient();
+        String feed = "http://localhost:" + catalog.port() + "/api/videos?limit=24";
+        firstPageUri = URI.create(feed);
+        deepPageUri = URI.create(feed + "&cursor=" + deepCursor);
+        feedEtag = send(HttpRequest.newBuilder(firstPageUri)).headers().firstValue("ETag").orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        catalog.close();
+    }
+
+    @Benchmark
+    public VideoPage firstPage() {
+        return videoService.list(null, null, 24);
+    }
+
+    @Benchmark
+    public VideoPage deepPage() {
+        return videoService.list(null, deepCursor, 24);
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> firstPageRequest() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(firstPageUri));
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> deepPageRequest() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(deepPageUri));
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> notModifiedRequest() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(firstPageUri).header("If-None-Match", feedEtag));
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,78 @@
+package com.video.services;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.video.dto.VideoPage;
+
+/**
+ * Full-text search through {@link VideoService#list} on a synthetic catalog of a million videos,
+ * for a word in about one title in five, two words together, and a rare title. {@code likeScan}
+ * runs the substring predicate search used before the tsvector index, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"glacier", "glacier kayak", "take 4242"})
+    private String query;
+
+    private CatalogDatabase catalog;
+    private VideoService videoService;
+    private String nextCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        catalog = new CatalogDatabase(rows);
+        videoService = catalog.bean(VideoService.class);
+        nextCursor = videoService.list(query, null, 24).nextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        catalog.close();
+    }
+
+    @Benchmark
+    public VideoPage firstPage() {
+        return videoService.list(query, null, 24);
+    }
+
+    @Benchmark
+    public VideoPage nextPage() {
+        return (nextCursor == null) ? null : videoService.list(query, nextCursor, 24);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> likeScan() {
+        return catalog.jdbc().queryForList("""
+                SELECT v.id, v.title FROM videos v
+                WHERE NOT v.is_private
+                AND (LOWER(v.title) LIKE '%' || LOWER(?) || '%' OR LOWER(v.description) LIKE '%' || LOWER(?) || '%')
+                ORDER BY v.created_at DESC, v.id DESC LIMIT 25
+                """, query, query);
+    }
+}
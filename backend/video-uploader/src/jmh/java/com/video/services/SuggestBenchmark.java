@@ -0,0 +1,59 @@
+package com.video.services;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.video.dto.VideoSuggestion;
+
+/**
+ * Suggestion latency from {@link TitleSuggestIndex} over the public titles of the synthetic
+ * catalog {@link CatalogDatabase} seeds, sampled so the p99 the endpoint is held to (under a
+ * millisecond) is reported directly. Queries cover a common prefix, two words, a rare title, and
+ * a common word with a digit, where the shortest posting list is long and few entries match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuggestBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    @Param({"gla", "glacier kay", "take 4242", "ocean 7"})
+    private String query;
+
+    private TitleSuggestIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // add() alone never touches the repository
+        index = new TitleSuggestIndex(null);
+        String[] words = CatalogDatabase.WORDS;
+        for (int g = 1; g <= rows; g++) {
+            if (g % 10 != 0) {
+                index.add(g, words[g % 16] + " " + words[(g / 16) % 16] + " " + words[(g / 256) % 16] + " take " + g);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<VideoSuggestion> suggest() {
+        return index.suggest(query, 8);
+    }
+}
@@ -0,0 +1,76 @@
+package com.video.services;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.video.dto.VideoResponse;
+import com.video.entities.ProcessingStatus;
+import com.video.entities.Video;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Mapping entities to {@link VideoResponse} and serializing feed-sized and larger lists of them,
+ * the two steps between the repository and the wire on every list request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VideoResponseBenchmark {
+
+    @Param({"24", "100", "10000"})
+    private int size;
+
+    private final JsonMapper mapper = JsonMapper.builder().build();
+    private List<Video> videos;
+    private List<VideoResponse> responses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        videos = new ArrayList<>(size);
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < size; i++) {
+            Video v = new Video();
+            v.setId((long) i);
+            v.setTitle("Video number " + i);
+            v.setDescription("A description long enough to look like a real one, for video " + i + ".");
+            v.setPrivate(i % 10 == 0);
+            v.setCreatedAt(now.minusMinutes(i));
+            v.setProcessingStatus(ProcessingStatus.READY);
+            videos.add(v);
+        }
+        responses = toResponses();
+    }
+
+    @Benchmark
+    public List<VideoResponse> toResponses() {
+        List<VideoResponse> out = new ArrayList<>(videos.size());
+        for (Video v : videos) {
+            out.add(VideoService.toResponse(v, "alice"));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return mapper.writeValueAsBytes(responses);
+    }
+}
@@ -0,0 +1,96 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Store and read-back throughput of {@link FileSystemStorageService} for a range of file sizes.
+ * With content addressing every store repeats the bytes stored during setup, so it measures the
+ * duplicate-upload path: hash, find the existing blob, drop the new copy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Param({"65536", "1048576", "16777216"})
+    private int sizeBytes;
+
+    @Param({"false", "true"})
+    private boolean contentAddressed;
+
+    private Path root;
+    private FileSystemStorageService storage;
+    private MockMultipartFile upload;
+    private String existing;
+    private StorageService.StoredFile lastStored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("storage-bench");
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root.toString());
+        properties.setContentAddressed(contentAddressed);
+        storage = new FileSystemStorageService(properties);
+        storage.init();
+
+        byte[] bytes = new byte[sizeBytes];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        upload = new MockMultipartFile("file", "clip.mp4", "video/mp4", bytes);
+        existing = storage.store(upload).storedFilename();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    // keeps the disk from filling up during the 16MB runs
+    @TearDown(Level.Invocation)
+    public void deleteStored() throws IOException {
+        if (lastStored != null && !lastStored.storedFilename().equals(existing)) {
+            Files.deleteIfExists(root.resolve(lastStored.storedFilename()));
+        }
+        lastStored = null;
+    }
+
+    @Benchmark
+    public StorageService.StoredFile store() {
+        lastStored = storage.store(upload);
+        return lastStored;
+    }
+
+    @Benchmark
+    public long loadAsResource() throws IOException {
+        try (InputStream in = storage.loadAsResource(existing).getInputStream()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.video.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-endpoint latency samples. Each endpoint keeps every sample in a growable long array, so
+ * percentiles are exact; at load-test rates that is a few megabytes at most.
+ */
+class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long nanos, boolean ok) {
+        samples.computeIfAbsent(endpoint, e -> new Samples()).add(nanos, ok);
+    }
+
+    Map<String, Summary> summarize(double seconds) {
+        Map<String, Summary> out = new LinkedHashMap<>();
+        samples.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> out.put(e.getKey(), e.getValue().summarize(seconds)));
+        return out;
+    }
+
+    record Summary(long count, long errors, double throughput, double p50Ms, double p95Ms, double p99Ms, double maxMs) {}
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void add(long value, boolean ok) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized Summary summarize(double seconds) {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            return new Summary(size, errors, size / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    (size == 0) ? 0 : sorted[size - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
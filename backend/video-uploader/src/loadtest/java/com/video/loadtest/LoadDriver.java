@@ -0,0 +1,251 @@
+package com.video.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Closed-model workload: every virtual user signs up and signs in once, then loops over a weighted
+ * mix of requests with no think time until the run ends. Videos uploaded during the run join the
+ * pool that feed, thumbnail and download requests pick from. Slow downloads read a whole file at
+ * {@code --slow-read-rate}, holding a server connection the way a phone on a poor network does.
+ */
+class LoadDriver {
+
+    private static final String[] WORDS = {
+            "alpha", "bravo", "canyon", "delta", "ember", "forest", "glacier", "harbor",
+            "island", "jungle", "kayak", "lagoon", "meadow", "nebula", "ocean", "prairie"
+    };
+
+    private final String baseUrl;
+    private final LoadTestOptions options;
+    private final HttpClient client;
+    private final JsonMapper json = JsonMapper.builder().build();
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final List<Long> videoIds = new CopyOnWriteArrayList<>();
+    private final byte[] video;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private volatile long end;
+
+    LoadDriver(String baseUrl, LoadTestOptions options) {
+        this.baseUrl = baseUrl;
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        // random bytes: the stub ffmpeg never decodes them, and content addressing sees distinct blobs
+        this.video = new byte[(int) options.fileSize()];
+        ThreadLocalRandom.current().nextBytes(video);
+    }
+
+    LatencyRecorder recorder() {
+        return recorder;
+    }
+
+    void seed() throws Exception {
+        String token = signIn("seed");
+        for (int i = 0; i < options.seedVideos(); i++) {
+            upload(token, false);
+        }
+        // thumbnails are generated in the background; wait so thumbnail requests do not 404
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        for (Long id : videoIds) {
+            while (System.nanoTime() < deadline && !"READY".equals(status(id))) {
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    /** Runs the measured phase and returns its length in seconds. */
+    double run() throws InterruptedException {
+        end = System.nanoTime() + options.duration().toNanos();
+        long start = System.nanoTime();
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < options.users(); u++) {
+                int user = u;
+                users.submit(() -> {
+                    try {
+                        String token = signIn("u" + user);
+                        while (System.nanoTime() < end) {
+                            step(token);
+                        }
+                    } catch (Exception e) {
+                        recorder.record("user aborted", 0, false);
+                    }
+                });
+            }
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private void step(String token) throws Exception {
+        String op = pick(options.mix());
+        switch (op) {
+            case "feed" -> send("GET /api/videos", get("/api/videos?limit=24", token));
+            case "search" -> send("GET /api/videos?search", get("/api/videos?search=" + word().substring(0, 3), token));
+            case "video" -> send("GET /api/videos/{id}", get("/api/videos/" + anyVideo(), token));
+            case "thumbnail" -> send("GET /api/videos/{id}/thumbnail", get("/api/videos/" + anyVideo() + "/thumbnail", token));
+            case "download" -> {
+                long window = Math.min(256 * 1024, video.length);
+                long from = ThreadLocalRandom.current().nextLong(Math.max(1, video.length - window + 1));
+                HttpRequest request = request("/api/videos/" + anyVideo() + "/download", token)
+                        .header("Range", "bytes=" + from + "-" + (from + window - 1))
+                        .GET().build();
+                send("GET /api/videos/{id}/download (range)", request);
+            }
+            case "slow-download" -> slowDownload(token);
+            case "upload" -> upload(token, ThreadLocalRandom.current().nextInt(10) == 0);
+            default -> throw new IllegalArgumentException("Unknown operation " + op);
+        }
+    }
+
+    // paced by sleeping between small reads; once the client's buffers fill, the server's writes block
+    private void slowDownload(String token) throws IOException, InterruptedException {
+        String endpoint = "GET /api/videos/{id}/download (slow reader)";
+        byte[] buffer = new byte[(int) Math.max(1, Math.min(16 * 1024, options.slowReadRate() / 10))];
+        long nanosPerBuffer = 1_000_000_000L * buffer.length / options.slowReadRate();
+
+        long start = System.nanoTime();
+        boolean ok = false;
+        boolean hungUp = false;
+        try {
+            HttpResponse<InputStream> response = client.send(
+                    request("/api/videos/" + anyVideo() + "/download", token).timeout(Duration.ofHours(1)).GET().build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream in = response.body()) {
+                long next = System.nanoTime();
+                while (in.readNBytes(buffer, 0, buffer.length) > 0) {
+                    // a reader still going when the run ends hangs up, unrecorded, rather than stretching the run
+                    if (System.nanoTime() >= end) {
+                        hungUp = true;
+                        return;
+                    }
+                    next += nanosPerBuffer;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        Thread.sleep(Duration.ofNanos(wait));
+                    }
+                }
+            }
+            ok = response.statusCode() < 400;
+        } finally {
+            if (!hungUp) {
+                recorder.record(endpoint, System.nanoTime() - start, ok);
+            }
+        }
+    }
+
+    private String signIn(String who) throws IOException, InterruptedException {
+        String username = "lt" + runId + who;
+        String password = "password-" + runId;
+        String body = "{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.com\",\"password\":\"" + password + "\"}";
+        send("POST /api/auth/signup", post("/api/auth/signup", body));
+
+        HttpResponse<byte[]> response = send("POST /api/auth/signin",
+                post("/api/auth/signin", "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"));
+        return json.readTree(response.body()).get("token").asString();
+    }
+
+    private void upload(String token, boolean isPrivate) throws IOException, InterruptedException {
+        String boundary = "----lt" + UUID.randomUUID();
+        String title = word() + " " + word() + " " + ThreadLocalRandom.current().nextInt(1000);
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n" + title + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"private\"\r\n\r\n" + isPrivate + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"clip.mp4\"\r\n"
+                + "Content-Type: video/mp4\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+
+        HttpRequest request = request("/api/videos/upload", token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(
+                        head.getBytes(StandardCharsets.UTF_8), video, tail.getBytes(StandardCharsets.UTF_8))))
+                .build();
+
+        HttpResponse<byte[]> response = send("POST /api/videos/upload", request);
+        if (response.statusCode() == 201 || response.statusCode() == 200) {
+            JsonNode created = json.readTree(response.body());
+            if (!created.get("isPrivate").asBoolean()) {
+                videoIds.add(created.get("id").asLong());
+            }
+        }
+    }
+
+    private String status(Long id) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request("/api/videos/" + id, null).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        return (response.statusCode() == 200) ? json.readTree(response.body()).get("processingStatus").asString() : null;
+    }
+
+    private HttpResponse<byte[]> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            throw e;
+        }
+        recorder.record(endpoint, System.nanoTime() - start, response.statusCode() < 400);
+        return response;
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return request(path, null)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    // the list only ever grows, so an index below a size read a moment ago is always valid
+    private long anyVideo() {
+        int size = videoIds.size();
+        return (size == 0) ? 1 : videoIds.get(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    private static String word() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    private static String pick(Map<String, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<String, Integer> e : mix.entrySet()) {
+            r -= e.getValue();
+            if (r < 0) {
+                return e.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+}
@@ -0,0 +1,153 @@
+package com.video.loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import com.video.VideoUploaderApplication;
+import com.video.storage.S3StandIn;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Boots the application against an embedded PostgreSQL (or {@code --db-url}) with a stub ffmpeg,
+ * storing media on local disk or, with {@code --storage=s3}, in an in-process S3 stand-in; then
+ * drives a mixed workload over HTTP and reports latency percentiles and throughput per endpoint.
+ * Everything runs in one JVM and needs no network once the Maven dependencies are cached.
+ *
+ * <pre>mvn -Ploadtest verify -Dloadtest.args="--users=100 --duration=2m"</pre>
+ */
+public class LoadTest {
+
+    // writes a tiny JPEG for thumbnails and a one-segment playlist for HLS, like ffmpeg's outputs would be named
+    private static final String FFMPEG_STUB = """
+            #!/bin/sh
+            for last; do :; done
+            case "$last" in
+              *.m3u8)
+                dir=$(dirname "$last")
+                printf '\\000\\000\\000\\030ftypiso6' > "$dir/init.mp4"
+                printf 'segment' > "$dir/seg_00000.m4s"
+                printf '#EXTM3U\\n#EXT-X-VERSION:7\\n#EXT-X-TARGETDURATION:6\\n#EXT-X-MAP:URI="init.mp4"\\n#EXTINF:6.0,\\nseg_00000.m4s\\n#EXT-X-ENDLIST\\n' > "$last"
+                printf '#EXTM3U\\n#EXT-X-VERSION:7\\n#EXT-X-STREAM-INF:BANDWIDTH=1000000,RESOLUTION=640x360,CODECS="avc1.64001e,mp4a.40.2"\\nindex.m3u8\\n' > "$dir/master.m3u8"
+                ;;
+              *)
+                printf '\\377\\330\\377\\340loadtest\\377\\331' > "$last"
+                ;;
+            esac
+            """;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        // devtools would restart the context in a new class loader and run this method a second time
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path workDir = Files.createTempDirectory("video-uploader-loadtest");
+
+        EmbeddedPostgres postgres = null;
+        String dbUrl = options.dbUrl();
+        if (dbUrl.isEmpty()) {
+            postgres = EmbeddedPostgres.builder().start();
+            dbUrl = postgres.getJdbcUrl("postgres", "postgres");
+        }
+
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + dbUrl,
+                "--spring.datasource.username=" + options.dbUser(),
+                "--spring.datasource.password=" + options.dbPassword(),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--jwt.secret=" + UUID.randomUUID() + UUID.randomUUID(),
+                "--storage.location=" + workDir.resolve("storage"),
+                "--media.ffmpeg=" + writeFfmpegStub(workDir),
+                "--media.hls.work-dir=" + workDir));
+        S3StandIn s3 = null;
+        if ("s3".equals(options.storage())) {
+            s3 = new S3StandIn(workDir.resolve("s3"));
+            appArgs.addAll(List.of(
+                    "--storage.type=s3",
+                    "--storage.s3.endpoint=" + s3.endpoint(),
+                    "--storage.s3.bucket=loadtest",
+                    "--storage.s3.access-key=loadtest",
+                    "--storage.s3.secret-key=loadtest",
+                    "--storage.s3.path-style-access=true"));
+        }
+        appArgs.addAll(options.springArgs());
+
+        ConfigurableApplicationContext app = SpringApplication.run(VideoUploaderApplication.class, appArgs.toArray(String[]::new));
+        try {
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            LoadDriver driver = new LoadDriver(baseUrl, options);
+
+            System.out.printf("Seeding %d videos of %d bytes...%n", options.seedVideos(), options.fileSize());
+            driver.seed();
+            System.out.printf("Running %d users for %s, mix %s%n", options.users(), options.duration(), options.mix());
+            double seconds = driver.run();
+
+            Map<String, LatencyRecorder.Summary> summary = driver.recorder().summarize(seconds);
+            print(summary, seconds);
+            writeReport(Path.of(options.report()), options, seconds, summary);
+        } finally {
+            app.close();
+            if (postgres != null) {
+                postgres.close();
+            }
+            if (s3 != null) {
+                s3.close();
+            }
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    private static Path writeFfmpegStub(Path workDir) throws IOException {
+        Path stub = workDir.resolve("ffmpeg");
+        Files.writeString(stub, FFMPEG_STUB);
+        Files.setPosixFilePermissions(stub, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return stub;
+    }
+
+    private static void print(Map<String, LatencyRecorder.Summary> summary, double seconds) {
+        System.out.printf(Locale.ROOT, "%nMeasured %.1f s%n", seconds);
+        System.out.printf(Locale.ROOT, "%-46s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        summary.forEach((endpoint, s) -> System.out.printf(Locale.ROOT, "%-46s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                endpoint, s.count(), s.errors(), s.throughput(), s.p50Ms(), s.p95Ms(), s.p99Ms(), s.maxMs()));
+    }
+
+    private static void writeReport(Path file,
+                                    LoadTestOptions options,
+                                    double seconds,
+                                    Map<String, LatencyRecorder.Summary> summary) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", options.users());
+        report.put("seconds", seconds);
+        report.put("fileSizeBytes", options.fileSize());
+        report.put("mix", options.mix());
+        report.put("storage", options.storage());
+        report.put("slowReadRateBytes", options.slowReadRate());
+        report.put("springArgs", options.springArgs());
+        report.put("endpoints", summary);
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file)) {
+            JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(out, report);
+        }
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+}
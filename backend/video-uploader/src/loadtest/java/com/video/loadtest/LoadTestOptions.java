@@ -0,0 +1,85 @@
+package com.video.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Harness options, given as {@code --name=value}. Anything not listed here is passed through to
+ * the Spring application, so e.g. {@code --spring.threads.virtual.enabled=true} works as usual.
+ */
+record LoadTestOptions(int users,
+                       Duration duration,
+                       int seedVideos,
+                       long fileSize,
+                       Map<String, Integer> mix,
+                       String dbUrl,
+                       String dbUser,
+                       String dbPassword,
+                       String report,
+                       String storage,
+                       long slowReadRate,
+                       List<String> springArgs) {
+
+    // slow-download (whole files read at slow-read-rate per second) is left out unless asked for
+    static final String DEFAULT_MIX = "feed=40,search=15,video=10,thumbnail=15,download=15,upload=5";
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("users", "50");
+        values.put("duration", "60s");
+        values.put("seed-videos", "20");
+        values.put("file-size", "1MB");
+        values.put("mix", DEFAULT_MIX);
+        values.put("db-url", "");
+        values.put("db-user", "postgres");
+        values.put("db-password", "");
+        values.put("report", "target/loadtest-report.json");
+        values.put("storage", "filesystem");
+        values.put("slow-read-rate", "64KB");
+
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = (arg.startsWith("--") && eq > 2) ? arg.substring(2, eq) : null;
+            if (name != null && values.containsKey(name)) {
+                values.put(name, arg.substring(eq + 1));
+            } else if (!arg.isBlank()) {
+                springArgs.add(arg);
+            }
+        }
+
+        return new LoadTestOptions(
+                Integer.parseInt(values.get("users")),
+                Duration.parse("PT" + values.get("duration").toUpperCase()),
+                Integer.parseInt(values.get("seed-videos")),
+                DataSize.parse(values.get("file-size")).toBytes(),
+                parseMix(values.get("mix")),
+                values.get("db-url"),
+                values.get("db-user"),
+                values.get("db-password"),
+                values.get("report"),
+                values.get("storage"),
+                DataSize.parse(values.get("slow-read-rate")).toBytes(),
+                springArgs);
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] kv = entry.trim().split("=");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                weights.put(kv[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("--mix needs at least one positive weight");
+        }
+        return weights;
+    }
+}
@@ -1,12 +1,16 @@
 package com.video;
 
+import com.video.services.MediaProperties;
+import com.video.services.UploadProperties;
 import com.video.storage.StorageProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties(StorageProperties.class)
+@EnableConfigurationProperties({StorageProperties.class, UploadProperties.class, MediaProperties.class})
+@EnableScheduling
 public class VideoUploaderApplication {
     public static void main(String[] args) {
         SpringApplication.run(VideoUploaderApplication.class, args);
@@ -0,0 +1,105 @@
+package com.video.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.DisconnectedClientHelper;
+
+import com.video.dto.VideoResponse;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Writes the feed as rows arrive from the database, either as NDJSON (one object per line) or as
+ * a single JSON array. Nothing is collected first: each row is serialized into the response buffer,
+ * which the container sends as a chunk whenever it fills, so memory per request stays constant
+ * however many videos there are. At most {@code feed.stream.max-concurrent} streams run at once;
+ * further requests get 503 rather than queueing behind clients that read slowly.
+ */
+@Component
+public class FeedStreamWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedStreamWriter.class);
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        JSON("application/json");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "stream must be ndjson or json");
+            }
+        }
+    }
+
+    private final ObjectWriter writer;
+    private final Semaphore streams;
+
+    public FeedStreamWriter(JsonMapper mapper,
+                            @Value("${feed.stream.max-concurrent:16}") int maxConcurrent) {
+        // the servlet stream is left open for the container, and NDJSON's last newline is written after the sequence
+        this.writer = mapper.writerFor(VideoResponse.class).without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+        this.streams = new Semaphore(maxConcurrent);
+    }
+
+    public void write(HttpServletRequest request,
+                      HttpServletResponse response,
+                      Format format,
+                      Consumer<Consumer<VideoResponse>> feed) throws IOException {
+
+        response.setContentType(format.contentType);
+        response.setCharacterEncoding("UTF-8");
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (!streams.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many feed streams in progress");
+        }
+        OutputStream out = response.getOutputStream();
+        try {
+            if (format == Format.NDJSON) {
+                try (SequenceWriter rows = writer.withRootValueSeparator("\n").writeValues(out)) {
+                    feed.accept(rows::write);
+                }
+                out.write('\n');
+            } else {
+                try (SequenceWriter rows = writer.writeValuesAsArray(out)) {
+                    feed.accept(rows::write);
+                }
+            }
+            out.flush();
+        } catch (IOException | JacksonException e) {
+            if (DisconnectedClientHelper.isClientDisconnectedException(e)) {
+                log.debug("Client disconnected while streaming {}", request.getRequestURI());
+                return;
+            }
+            throw e;
+        } finally {
+            streams.release();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.video.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.util.DisconnectedClientHelper;
+
+import com.video.storage.RangeReadable;
+import com.video.storage.StorageService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes a stored {@link Resource} honouring HTTP byte-range requests (RFC 9110 section 14).
+ * A file-backed body or single range on Tomcat is handed to the connector's sendfile support, so
+ * the bytes never enter the heap. Everything else (multipart/byteranges, other containers, remote
+ * resources) is copied through a heap buffer into the servlet stream; remote resources that are
+ * {@link RangeReadable} fetch only the requested bytes.
+ */
+@Component
+public class RangeResourceWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(RangeResourceWriter.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // same cap as HttpRange.parseRanges; more ranges than this are refused rather than ignored
+    private static final int MAX_RANGES = 100;
+
+    public void write(HttpServletRequest request,
+                      HttpServletResponse response,
+                      Resource resource,
+                      String contentType,
+                      String contentDisposition) throws IOException {
+        write(request, response, resource, contentType, contentDisposition, null, -1);
+    }
+
+    /**
+     * As {@link #write(HttpServletRequest, HttpServletResponse, Resource, String, String)}, with
+     * validators the caller already knows; a non-positive {@code lastModified} falls back to the
+     * resource's own timestamp. The strong ETag is also what If-Range is matched against. A
+     * resource that holds an open file is closed once written.
+     */
+    public void write(HttpServletRequest request,
+                      HttpServletResponse response,
+                      Resource resource,
+                      String contentType,
+                      String contentDisposition,
+                      String etag,
+                      long lastModified) throws IOException {
+        try {
+            writeResource(request, response, resource, contentType, contentDisposition, etag, lastModified);
+        } finally {
+            StorageService.release(resource);
+        }
+    }
+
+    private void writeResource(HttpServletRequest request,
+                               HttpServletResponse response,
+                               Resource resource,
+                               String contentType,
+                               String contentDisposition,
+                               String etag,
+                               long lastModified) throws IOException {
+
+        long length = resource.contentLength();
+        if (lastModified <= 0) {
+            lastModified = resource.lastModified();
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        if (contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+        if (lastModified > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+
+        List<HttpRange> ranges = requestedRanges(request, etag, lastModified);
+        if (ranges == null) {
+            notSatisfiable(response, length);
+            return;
+        }
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            writeBody(request, response, resource, List.of(new long[]{0, length}), null, contentType, length);
+            return;
+        }
+
+        List<long[]> satisfiable = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            // unsatisfiable ranges are dropped; 416 only if none remain
+            try {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                if (start < length && start <= end) {
+                    satisfiable.add(new long[]{start, end - start + 1});
+                    total += end - start + 1;
+                }
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+
+        // overlapping ranges that add up to more than the file are a known amplification vector
+        if (satisfiable.isEmpty() || total > length) {
+            notSatisfiable(response, length);
+            return;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+
+        if (satisfiable.size() == 1) {
+            long[] r = satisfiable.get(0);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(r, length));
+            response.setContentLengthLong(r[1]);
+            writeBody(request, response, resource, satisfiable, null, contentType, length);
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(multipartLength(satisfiable, boundary, contentType, length));
+        writeBody(request, response, resource, satisfiable, boundary, contentType, length);
+    }
+
+    private List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(request, ifRange, etag, lastModified)) {
+            return List.of();
+        }
+
+        // an over-long range set is refused like an amplifying one; returns null for a 416
+        if (rangeHeader.split(",").length > MAX_RANGES) {
+            return null;
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // a syntactically invalid Range header is ignored and the full representation is sent
+            return List.of();
+        }
+    }
+
+    private void notSatisfiable(HttpServletResponse response, long length) {
+        response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        response.setContentLength(0);
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String ifRange, String etag, long lastModified) {
+        String value = ifRange.trim();
+        // If-Range needs a strong comparison, so a weak tag never matches
+        if (value.startsWith("W/")) {
+            return false;
+        }
+        if (value.startsWith("\"")) {
+            return value.equals(etag);
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return lastModified > 0 && since == (lastModified / 1000) * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeBody(HttpServletRequest request,
+                           HttpServletResponse response,
+                           Resource resource,
+                           List<long[]> ranges,
+                           String boundary,
+                           String contentType,
+                           long length) throws IOException {
+
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        Path path = resource.isFile() ? resource.getFile().toPath() : null;
+
+        if (path != null && boundary == null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            long[] r = ranges.get(0);
+            request.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, r[0]);
+            request.setAttribute(SENDFILE_END, r[0] + r[1]);
+            return;
+        }
+
+        try {
+            OutputStream out = response.getOutputStream();
+            for (long[] r : ranges) {
+                if (boundary != null) {
+                    out.write(partHeader(boundary, contentType, r, length));
+                }
+                if (path != null) {
+                    transfer(path, r[0], r[1], out);
+                } else if (resource instanceof RangeReadable ranged) {
+                    try (InputStream in = ranged.getInputStream(r[0], r[1])) {
+                        in.transferTo(out);
+                    }
+                } else {
+                    try (InputStream in = resource.getInputStream()) {
+                        StreamUtils.copyRange(in, out, r[0], r[0] + r[1] - 1);
+                    }
+                }
+            }
+            if (boundary != null) {
+                out.write(CRLF);
+                out.write(("--" + boundary + "--").getBytes(StandardCharsets.US_ASCII));
+                out.write(CRLF);
+            }
+            out.flush();
+        } catch (IOException e) {
+            if (DisconnectedClientHelper.isClientDisconnectedException(e)) {
+                log.debug("Client disconnected while streaming {}", request.getRequestURI());
+                return;
+            }
+            throw e;
+        }
+    }
+
+    // the servlet stream is not a channel, so transferTo copies through a heap buffer here
+    private void transfer(Path path, long position, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long remaining = count;
+            long pos = position;
+            while (remaining > 0) {
+                long n = channel.transferTo(pos, remaining, target);
+                if (n <= 0) {
+                    break;
+                }
+                pos += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    private long multipartLength(List<long[]> ranges, String boundary, String contentType, long length) {
+        long total = 0;
+        for (long[] r : ranges) {
+            total += partHeader(boundary, contentType, r, length).length + r[1];
+        }
+        return total + CRLF.length + ("--" + boundary + "--").length() + CRLF.length;
+    }
+
+    private byte[] partHeader(String boundary, String contentType, long[] r, long length) {
+        String header = "\r\n--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                + HttpHeaders.CONTENT_RANGE + ": " + contentRange(r, length) + "\r\n\r\n";
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private String contentRange(long[] r, long length) {
+        return "bytes " + r[0] + "-" + (r[0] + r[1] - 1) + "/" + length;
+    }
+}
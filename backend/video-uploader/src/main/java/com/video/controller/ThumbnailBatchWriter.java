@@ -0,0 +1,139 @@
+package com.video.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.util.DisconnectedClientHelper;
+
+import com.video.services.VideoService;
+import com.video.storage.StorageService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes a batch of thumbnails as a single multipart/form-data body with one part per video,
+ * named by its id, so a browser can split it with {@code Response.formData()}. Part lengths are
+ * known before the first byte is sent, which gives the response an exact Content-Length.
+ * Every part is copied through a heap buffer into the servlet stream: Tomcat's sendfile serves one
+ * file per response, so it cannot take a multipart body, and thumbnails are small enough that
+ * the copy is cheap next to the requests it saves.
+ */
+@Component
+public class ThumbnailBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailBatchWriter.class);
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    public void write(HttpServletRequest request,
+                      HttpServletResponse response,
+                      List<VideoService.ThumbnailPart> parts) throws IOException {
+        // opened only now, after the caller's conditional check; a part whose file is gone is dropped
+        List<VideoService.ThumbnailPart> opened = new ArrayList<>(parts.size());
+        List<Resource> resources = new ArrayList<>(parts.size());
+        try {
+            for (VideoService.ThumbnailPart part : parts) {
+                Resource resource = part.open();
+                if (resource != null) {
+                    opened.add(part);
+                    resources.add(resource);
+                }
+            }
+            writeParts(request, response, opened, resources);
+        } finally {
+            resources.forEach(StorageService::release);
+        }
+    }
+
+    private void writeParts(HttpServletRequest request,
+                            HttpServletResponse response,
+                            List<VideoService.ThumbnailPart> parts,
+                            List<Resource> resources) throws IOException {
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        byte[] closing = ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        List<byte[]> headers = new ArrayList<>(parts.size());
+        List<Long> lengths = new ArrayList<>(parts.size());
+        long total = closing.length;
+        for (int i = 0; i < parts.size(); i++) {
+            byte[] header = partHeader(boundary, parts.get(i));
+            long length = resources.get(i).contentLength();
+            headers.add(header);
+            lengths.add(length);
+            total += header.length + length + CRLF.length;
+        }
+
+        response.setContentType("multipart/form-data; boundary=" + boundary);
+        response.setContentLengthLong(total);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        try {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < parts.size(); i++) {
+                Resource resource = resources.get(i);
+                out.write(headers.get(i));
+                if (resource.isFile()) {
+                    transfer(resource.getFile().toPath(), lengths.get(i), target);
+                } else {
+                    try (InputStream in = resource.getInputStream()) {
+                        StreamUtils.copy(in, out);
+                    }
+                }
+                out.write(CRLF);
+            }
+            out.write(closing);
+            out.flush();
+        } catch (IOException e) {
+            if (DisconnectedClientHelper.isClientDisconnectedException(e)) {
+                log.debug("Client disconnected while streaming {}", request.getRequestURI());
+                return;
+            }
+            throw e;
+        }
+    }
+
+    // copies at most the length announced in the part header; the target wraps the servlet stream,
+    // so this is a buffered copy rather than a zero-copy transfer
+    private void transfer(Path path, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < count) {
+                long n = channel.transferTo(position, count - position, target);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+            }
+        }
+    }
+
+    private byte[] partHeader(String boundary, VideoService.ThumbnailPart part) {
+        String header = "--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_DISPOSITION + ": form-data; name=\"" + part.videoId()
+                + "\"; filename=\"" + part.videoId() + "\"\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + part.contentType() + "\r\n"
+                + HttpHeaders.ETAG + ": " + part.etag() + "\r\n\r\n";
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+}
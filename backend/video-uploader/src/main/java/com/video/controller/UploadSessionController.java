@@ -0,0 +1,52 @@
+package com.video.controller;
+
+import com.video.dto.CreateUploadRequest;
+import com.video.dto.UploadSessionResponse;
+import com.video.dto.VideoResponse;
+import com.video.services.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/videos/uploads")
+public class UploadSessionController {
+    private final ChunkedUploadService chunkedUploadService;
+
+    public UploadSessionController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> create(@Valid @RequestBody CreateUploadRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(chunkedUploadService.create(request));
+    }
+
+    @GetMapping("/{uploadId}")
+    public UploadSessionResponse status(@PathVariable String uploadId) {
+        return chunkedUploadService.status(uploadId);
+    }
+
+    @PutMapping(value = "/{uploadId}/chunks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public UploadSessionResponse putChunk(@PathVariable String uploadId,
+                                          @RequestParam("offset") long offset,
+                                          HttpServletRequest request) throws IOException {
+        return chunkedUploadService.writeChunk(uploadId, offset, request.getInputStream());
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public VideoResponse complete(@PathVariable String uploadId) {
+        return chunkedUploadService.complete(uploadId);
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abort(@PathVariable String uploadId) {
+        chunkedUploadService.abort(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
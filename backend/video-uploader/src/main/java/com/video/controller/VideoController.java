@@ -1,17 +1,31 @@
 package com.video.controller;
+import com.video.dto.MediaUrlsResponse;
+import com.video.dto.VideoPage;
 import com.video.dto.VideoResponse;
+import com.video.dto.VideoSuggestion;
+import com.video.security.MediaUrlSigner;
 import com.video.services.VideoService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.util.DigestUtils;
 import org.springframework.validation.annotation.Validated;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -19,19 +33,72 @@ import java.util.List;
 @Validated
 public class VideoController {
     private final VideoService videoService;
-
-    public VideoController(VideoService videoService) {
+    private final RangeResourceWriter rangeResourceWriter;
+    private final ThumbnailBatchWriter thumbnailBatchWriter;
+    private final FeedStreamWriter feedStreamWriter;
+
+    public VideoController(VideoService videoService,
+                           RangeResourceWriter rangeResourceWriter,
+                           ThumbnailBatchWriter thumbnailBatchWriter,
+                           FeedStreamWriter feedStreamWriter) {
         this.videoService = videoService;
+        this.rangeResourceWriter = rangeResourceWriter;
+        this.thumbnailBatchWriter = thumbnailBatchWriter;
+        this.feedStreamWriter = feedStreamWriter;
     }
 
     @GetMapping
-    public List<VideoResponse> list(@RequestParam(value = "search", required = false) String search) {
-        return videoService.list(search);
+    public ResponseEntity<VideoPage> list(@RequestParam(value = "search", required = false) String search,
+                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                          WebRequest webRequest) {
+        // checked before the page query, so an unchanged feed costs one counter read and one index seek
+        String etag = videoService.feedEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(videoService.list(search, cursor, limit));
+    }
+
+    // the whole feed in one response, without pages; search results keep using cursor pages
+    @GetMapping(params = "stream")
+    public void stream(@RequestParam("stream") String stream,
+                       @RequestParam(value = "search", required = false) String search,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        FeedStreamWriter.Format format = FeedStreamWriter.Format.parse(stream);
+        if (search != null && !search.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search results cannot be streamed");
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(videoService.feedEtag())) {
+            return;
+        }
+
+        feedStreamWriter.write(request, response, format, videoService::streamFeed);
+    }
+
+    @GetMapping("/suggest")
+    public List<VideoSuggestion> suggest(@RequestParam(value = "q", required = false) String q,
+                                         @RequestParam(value = "limit", required = false) Integer limit) {
+        return videoService.suggest(q, limit);
     }
 
     @GetMapping("/{id}")
-    public VideoResponse getOne(@PathVariable Long id) {
-        return videoService.getOne(id);
+    public ResponseEntity<VideoResponse> getOne(@PathVariable Long id) {
+        VideoResponse video = videoService.getOne(id);
+
+        // processing status is the only field that changes after upload
+        CacheControl cacheControl = CacheControl.noCache();
+        return ResponseEntity.ok()
+                .eTag("\"" + video.id() + "-" + video.processingStatus() + "\"")
+                .cacheControl(video.isPrivate() ? cacheControl.cachePrivate() : cacheControl.cachePublic())
+                .body(video);
     }
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public VideoResponse upload(
@@ -49,30 +116,112 @@ public class VideoController {
         return videoService.upload(file, title, description, isPrivate);
     }
 
+    @GetMapping("/{id}/media-urls")
+    public MediaUrlsResponse mediaUrls(@PathVariable Long id) {
+        return videoService.mediaUrls(id);
+    }
+
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> download(@PathVariable Long id) {
-        VideoService.FileDownload d = videoService.downloadVideo(id);
+    public void download(@PathVariable Long id,
+                         @RequestParam(value = "uid", required = false) Long uid,
+                         @RequestParam(value = "exp", required = false) Long exp,
+                         @RequestParam(value = "sig", required = false) String sig,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        VideoService.FileDownload d = videoService.downloadVideo(id, signature(uid, exp, sig));
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, mediaCacheControl(d.isPrivate()).getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(d.etag(), d.lastModified())) {
+            return;
+        }
+
+        // validators come from the row, so a 304 never opens the file
+        rangeResourceWriter.write(request, response, d.open(), d.contentType(),
+                "attachment; filename=\"" + d.downloadFilename() + "\"", d.etag(), d.lastModified());
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(d.contentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + d.downloadFilename() + "\"")
-                .body(d.resource());
+    @GetMapping("/{id}/thumbnail")
+    public void thumbnail(@PathVariable Long id,
+                          @RequestParam(value = "uid", required = false) Long uid,
+                          @RequestParam(value = "exp", required = false) Long exp,
+                          @RequestParam(value = "sig", required = false) String sig,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        VideoService.FileDownload d = videoService.downloadThumbnail(id, signature(uid, exp, sig));
+
+        // conditional requests are answered from the cached row's validators without opening the file
+        response.setHeader(HttpHeaders.CACHE_CONTROL, mediaCacheControl(d.isPrivate()).getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(d.etag(), d.lastModified())) {
+            return;
+        }
+
+        rangeResourceWriter.write(request, response, d.open(), d.contentType(),
+                "inline; filename=\"" + d.downloadFilename() + "\"", d.etag(), d.lastModified());
+    }
+
+    @GetMapping("/thumbnails")
+    public void thumbnails(@RequestParam("ids") List<Long> ids,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        List<VideoService.ThumbnailPart> parts = videoService.thumbnails(ids);
+
+        // which parts a caller gets depends on who they are, so the batch is never shared
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(batchEtag(parts))) {
+            return;
+        }
+
+        thumbnailBatchWriter.write(request, response, parts);
     }
 
-     @GetMapping("/{id}/thumbnail")
-    public ResponseEntity<Resource> thumbnail(@PathVariable Long id) {
-        VideoService.FileDownload d = videoService.downloadThumbnail(id);
+    @GetMapping(value = "/{id}/hls/master.m3u8")
+    public ResponseEntity<String> hlsMaster(@PathVariable Long id) {
+        VideoService.HlsPlaylist playlist = videoService.hlsMaster(id);
 
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(d.contentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "inline; filename=\"" + d.downloadFilename() + "\"")
-                .body(d.resource());
+                .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                .cacheControl(hlsCacheControl(Duration.ofMinutes(1), playlist.isPrivate()))
+                .body(playlist.body());
     }
-}
 
+    @GetMapping("/{id}/hls/{rendition}/{file}")
+    public void hlsFile(@PathVariable Long id,
+                        @PathVariable String rendition,
+                        @PathVariable String file,
+                        HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+        VideoService.FileDownload d = videoService.downloadHlsFile(id, rendition, file);
+
+        // segments never change once packaged; variant playlists get a short lifetime in case of a re-package
+        CacheControl cacheControl = file.endsWith(".m3u8")
+                ? hlsCacheControl(Duration.ofMinutes(1), d.isPrivate())
+                : hlsCacheControl(Duration.ofDays(365), d.isPrivate()).immutable();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+
+        rangeResourceWriter.write(request, response, d.open(), d.contentType(), null);
+    }
 
+    private String batchEtag(List<VideoService.ThumbnailPart> parts) {
+        StringBuilder key = new StringBuilder();
+        for (VideoService.ThumbnailPart part : parts) {
+            key.append(part.videoId()).append(part.etag());
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
 
+    private MediaUrlSigner.Signature signature(Long uid, Long exp, String sig) {
+        return (sig == null) ? null : new MediaUrlSigner.Signature(uid, exp, sig);
+    }
 
+    // stored media never changes; private media must still be revalidated so access is re-checked
+    private CacheControl mediaCacheControl(boolean isPrivate) {
+        return isPrivate
+                ? CacheControl.noCache().cachePrivate()
+                : CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    }
 
+    private CacheControl hlsCacheControl(Duration maxAge, boolean isPrivate) {
+        CacheControl cacheControl = CacheControl.maxAge(maxAge);
+        return isPrivate ? cacheControl.cachePrivate() : cacheControl.cachePublic();
+    }
+}
@@ -0,0 +1,39 @@
+package com.video.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CreateUploadRequest {
+    @NotBlank(message = "Filename is required")
+    @Size(max = 255, message = "Filename must be at most 255 characters")
+    private String filename;
+
+    private String contentType;
+
+    @NotNull(message = "Total size is required")
+    @Positive(message = "Total size must be positive")
+    private Long totalBytes;
+
+    @Positive(message = "Chunk size must be positive")
+    private Integer chunkSize;
+
+    @NotBlank(message = "Title is required")
+    @Size(max = 100, message = "Title must be at most 100 characters")
+    private String title;
+
+    @Size(max = 500, message = "Description must be at most 500 characters")
+    private String description;
+
+    @JsonProperty("private")
+    private Boolean isPrivate;
+}
@@ -0,0 +1,9 @@
+package com.video.dto;
+
+import java.time.OffsetDateTime;
+
+public record MediaUrlsResponse(
+        String videoUrl,
+        String thumbnailUrl,
+        OffsetDateTime expiresAt
+) {}
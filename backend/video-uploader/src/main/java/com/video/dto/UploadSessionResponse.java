@@ -0,0 +1,13 @@
+package com.video.dto;
+
+import java.time.OffsetDateTime;
+
+public record UploadSessionResponse(
+        String uploadId,
+        long totalBytes,
+        int chunkSize,
+        long committedOffset,
+        long receivedBytes,
+        boolean complete,
+        OffsetDateTime expiresAt
+) {}
@@ -0,0 +1,8 @@
+package com.video.dto;
+
+import java.util.List;
+
+public record VideoPage(
+        List<VideoResponse> items,
+        String nextCursor
+) {}
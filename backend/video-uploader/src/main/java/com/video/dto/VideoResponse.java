@@ -1,5 +1,7 @@
 package com.video.dto;
 
+import com.video.entities.ProcessingStatus;
+
 import java.time.OffsetDateTime;
 
 public record VideoResponse(
@@ -8,5 +10,18 @@ public record VideoResponse(
         String description,
         boolean isPrivate,
         String uploaderUsername,
-        OffsetDateTime createdAt
-) {}
+        OffsetDateTime createdAt,
+        String processingStatus
+) {
+    // used by the JPQL constructor expressions; rows from before background processing have no status
+    public VideoResponse(Long id,
+                         String title,
+                         String description,
+                         boolean isPrivate,
+                         String uploaderUsername,
+                         OffsetDateTime createdAt,
+                         ProcessingStatus processingStatus) {
+        this(id, title, description, isPrivate, uploaderUsername, createdAt,
+                (processingStatus == null) ? ProcessingStatus.READY.name() : processingStatus.name());
+    }
+}
@@ -0,0 +1,6 @@
+package com.video.dto;
+
+public record VideoSuggestion(
+        Long id,
+        String title
+) {}
@@ -0,0 +1,52 @@
+package com.video.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "content_blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentBlob {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false, length = 500)
+    private String storedFilename;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(length = 64)
+    private String volume;
+
+    // number of raw_files rows pointing at this blob
+    @Column(nullable = false)
+    private long refCount;
+
+    @Column(length = 500)
+    private String thumbnailStoredFilename;
+
+    @Column(length = 500)
+    private String thumbnailFilePath;
+
+    @Column(length = 64)
+    private String thumbnailVolume;
+
+    private Long thumbnailSizeBytes;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,8 @@
+package com.video.entities;
+
+public enum ProcessingStatus {
+    PENDING,
+    PROCESSING,
+    READY,
+    FAILED
+}
@@ -8,6 +8,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -24,7 +25,8 @@ import lombok.Setter;
 public class RawFile {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "raw_files_seq")
+    @SequenceGenerator(name = "raw_files_seq", sequenceName = "raw_files_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -42,6 +44,13 @@ public class RawFile {
     @Column(nullable = false, length = 500)
     private String filePath;
 
+    @Column(length = 64)
+    private String sha256;
+
+    // storage volume holding the file; null means the primary storage.location
+    @Column(length = 64)
+    private String volume;
+
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
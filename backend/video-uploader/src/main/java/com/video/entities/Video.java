@@ -6,14 +6,18 @@ import java.time.ZoneOffset;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -21,15 +25,17 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = @Index(name = "idx_videos_created_at_id", columnList = "createdAt DESC, id DESC"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Video {
 
+    // ids come from a pooled sequence (one nextval per 50 rows) rather than IDENTITY, so inserts can be batched
     @Id
-    @GeneratedValue(strategy=GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "videos_seq")
+    @SequenceGenerator(name = "videos_seq", sequenceName = "videos_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -53,6 +59,16 @@ public class Video {
     @JoinColumn(name = "thumbnail_file_id")
     private RawFile thumbnailFile;
 
+    // null for rows created before background processing existed; treated as READY
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ProcessingStatus processingStatus;
+
+    private Integer processingAttempts;
+
+    // while PROCESSING, until when the claiming instance holds the video; renewed by its sweeps
+    private OffsetDateTime processingLeaseUntil;
+
     @Column(nullable = false)
     private OffsetDateTime createdAt;
 
@@ -0,0 +1,76 @@
+package com.video.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "video_renditions", uniqueConstraints = @UniqueConstraint(columnNames = {"video_id", "name"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoRendition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "video_renditions_seq")
+    @SequenceGenerator(name = "video_renditions_seq", sequenceName = "video_renditions_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "video_id", nullable = false)
+    private Video video;
+
+    @Column(nullable = false, length = 32)
+    private String name;
+
+    @Column(nullable = false)
+    private int height;
+
+    // as measured by ffmpeg; null for renditions packaged before it was recorded
+    private Integer width;
+
+    // RFC 6381 codecs string, e.g. avc1.64001f,mp4a.40.2; null when unknown
+    @Column(length = 64)
+    private String codecs;
+
+    // peak bits per second advertised in the master playlist
+    @Column(nullable = false)
+    private long bandwidth;
+
+    // stored-filename prefix shared by the variant playlist and its segments
+    @Column(nullable = false, length = 500)
+    private String storagePrefix;
+
+    @Column(length = 64)
+    private String volume;
+
+    @Column(nullable = false)
+    private String playlistFilename;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
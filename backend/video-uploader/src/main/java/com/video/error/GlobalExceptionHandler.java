@@ -2,6 +2,7 @@ package com.video.error;
 
 import com.video.storage.StorageException;
 import com.video.storage.StorageFileNotFoundException;
+import com.video.storage.StorageFullException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -76,6 +77,14 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.NOT_FOUND, req, ex.getMessage(), null);
     }
 
+    @ExceptionHandler(StorageFullException.class)
+    public ResponseEntity<ApiErrorResponse> handleStorageFull(
+            StorageFullException ex,
+            HttpServletRequest req) {
+
+        return build(HttpStatus.SERVICE_UNAVAILABLE, req, ex.getMessage(), null);
+    }
+
     @ExceptionHandler(StorageException.class)
     public ResponseEntity<ApiErrorResponse> handleStorage(
             StorageException ex,
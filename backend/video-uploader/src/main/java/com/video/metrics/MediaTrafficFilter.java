@@ -0,0 +1,109 @@
+package com.video.metrics;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+
+/**
+ * Tracks uploads while their bytes are still arriving ({@code video.uploads.active}) and the bytes
+ * each video endpoint sends ({@code video.http.served}). Served bytes are taken from the
+ * Content-Length every media response sets, or from the sendfile range when the connector sends
+ * the file after the filter chain returns, so nothing wraps the output stream.
+ */
+@Component
+public class MediaTrafficFilter extends OncePerRequestFilter {
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Pattern CHUNK_PATH = Pattern.compile("/api/videos/uploads/[^/]+/chunks");
+
+    private final MeterRegistry registry;
+
+    public MediaTrafficFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String upload = uploadKind(request);
+        LongTaskTimer.Sample active = (upload == null) ? null : LongTaskTimer.builder("video.uploads.active")
+                .description("Uploads currently being received")
+                .tag("kind", upload)
+                .register(registry)
+                .start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (active != null) {
+                active.stop();
+            }
+        }
+
+        recordServed(request, response);
+    }
+
+    private String uploadKind(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if ("POST".equals(request.getMethod()) && "/api/videos/upload".equals(uri)) {
+            return "multipart";
+        }
+        if ("PUT".equals(request.getMethod()) && CHUNK_PATH.matcher(uri).matches()) {
+            return "chunk";
+        }
+        return null;
+    }
+
+    private void recordServed(HttpServletRequest request, HttpServletResponse response) {
+        if (!"GET".equals(request.getMethod()) || response.getStatus() >= 300) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null || !pattern.toString().startsWith("/api/videos")) {
+            return;
+        }
+        long bytes = servedBytes(request, response);
+        if (bytes < 0) {
+            return;
+        }
+
+        DistributionSummary.builder("video.http.served")
+                .description("Response bytes sent per video endpoint")
+                .baseUnit("bytes")
+                .tag("uri", pattern.toString())
+                .register(registry)
+                .record(bytes);
+    }
+
+    private static long servedBytes(HttpServletRequest request, HttpServletResponse response) {
+        // a sendfile response is not committed yet, so its Content-Length is not readable here
+        if (request.getAttribute(SENDFILE_START) instanceof Long start
+                && request.getAttribute(SENDFILE_END) instanceof Long end) {
+            return end - start;
+        }
+        String length = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (length == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(length);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
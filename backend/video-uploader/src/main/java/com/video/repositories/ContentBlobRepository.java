@@ -0,0 +1,29 @@
+package com.video.repositories;
+
+import com.video.entities.ContentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount + 1 WHERE b.sha256 = :sha256")
+    int incrementRefCount(@Param("sha256") String sha256);
+
+    @Modifying
+    @Query("""
+        UPDATE ContentBlob b
+        SET b.thumbnailStoredFilename = :storedFilename,
+            b.thumbnailFilePath = :filePath,
+            b.thumbnailVolume = :volume,
+            b.thumbnailSizeBytes = :sizeBytes
+        WHERE b.sha256 = :sha256 AND b.thumbnailStoredFilename IS NULL
+    """)
+    int attachThumbnail(@Param("sha256") String sha256,
+                        @Param("storedFilename") String storedFilename,
+                        @Param("filePath") String filePath,
+                        @Param("volume") String volume,
+                        @Param("sizeBytes") long sizeBytes);
+}
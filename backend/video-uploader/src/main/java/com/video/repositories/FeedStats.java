@@ -0,0 +1,12 @@
+package com.video.repositories;
+
+import java.time.Instant;
+
+/**
+ * What the feed's validator is built from: the counter every change to the videos table moves
+ * (see schema-postgresql.sql), and the newest row the caller can see.
+ */
+public interface FeedStats {
+    Long getVersion();
+    Instant getNewest();
+}
@@ -1,7 +1,32 @@
 package com.video.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import com.video.entities.RawFile;
 
 public interface RawFileRepository extends JpaRepository<RawFile, Long> {
-}
\ No newline at end of file
+
+    // flat files predate storage volumes, so they are all on the primary location
+    @Query("""
+        SELECT r FROM RawFile r
+        WHERE r.id > :afterId AND r.volume IS NULL AND r.storedFilename NOT LIKE '%/%'
+        ORDER BY r.id
+    """)
+    List<RawFile> findFlatAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // every row sharing the file moves with it
+    @Modifying
+    @Query("""
+        UPDATE RawFile r SET r.storedFilename = :newName, r.filePath = :filePath
+        WHERE r.storedFilename = :oldName AND r.volume IS NULL
+    """)
+    int relocate(@Param("oldName") String oldName,
+                 @Param("newName") String newName,
+                 @Param("filePath") String filePath);
+}
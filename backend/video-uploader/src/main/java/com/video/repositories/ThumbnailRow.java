@@ -0,0 +1,15 @@
+package com.video.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * A thumbnail the caller is allowed to see, with just the file columns needed to stream it.
+ */
+public record ThumbnailRow(Long videoId,
+                           boolean isPrivate,
+                           Long fileId,
+                           String volume,
+                           String storedFilename,
+                           String contentType,
+                           long sizeBytes,
+                           LocalDateTime createdAt) {}
@@ -0,0 +1,11 @@
+package com.video.repositories;
+
+import java.util.Collection;
+
+import com.video.entities.Video;
+
+public interface VideoBulkRepository {
+
+    // persists the videos with their files in JDBC batches, for imports too large to hold in one persistence context
+    int insertAll(Collection<Video> videos);
+}
@@ -0,0 +1,39 @@
+package com.video.repositories;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.video.entities.Video;
+
+import jakarta.persistence.EntityManager;
+
+class VideoBulkRepositoryImpl implements VideoBulkRepository {
+
+    private final EntityManager entityManager;
+    private final int batchSize;
+
+    VideoBulkRepositoryImpl(EntityManager entityManager,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public int insertAll(Collection<Video> videos) {
+        int count = 0;
+        for (Video video : videos) {
+            entityManager.persist(video);
+            // flush each full batch and let go of it, so memory stays flat however many rows there are
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return count;
+    }
+}
@@ -0,0 +1,24 @@
+package com.video.repositories;
+
+import com.video.entities.VideoRendition;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface VideoRenditionRepository extends JpaRepository<VideoRendition, Long> {
+    List<VideoRendition> findByVideoIdOrderByBandwidthAsc(Long videoId);
+    Optional<VideoRendition> findByVideoIdAndName(Long videoId, String name);
+    boolean existsByVideoId(Long videoId);
+
+    @Query("SELECT r FROM VideoRendition r WHERE r.id > :afterId AND r.storagePrefix LIKE 'hls/%' ORDER BY r.id")
+    List<VideoRendition> findLegacyLayoutAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE VideoRendition r SET r.storagePrefix = :prefix WHERE r.id = :id")
+    int updateStoragePrefix(@Param("id") Long id, @Param("prefix") String prefix);
+}
@@ -1,35 +1,143 @@
 package com.video.repositories;
 
 
+import com.video.dto.VideoResponse;
+import com.video.dto.VideoSuggestion;
+import com.video.entities.ProcessingStatus;
 import com.video.entities.Video;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface VideoRepository extends JpaRepository<Video, Long> {
+public interface VideoRepository extends JpaRepository<Video, Long>, VideoBulkRepository {
+
+    // the feed queries select straight into VideoResponse: one statement, no entity or RawFile loading
+
+    @Query("""
+        SELECT new com.video.dto.VideoResponse(
+            v.id, v.title, v.description, v.isPrivate, u.username, v.createdAt, v.processingStatus)
+        FROM Video v JOIN v.uploader u
+        WHERE v.id = :id
+        AND (v.isPrivate = false OR u.id = :userId)
+    """)
+    Optional<VideoResponse> findVisibleResponse(@Param("id") Long id, @Param("userId") Long userId);
+
+    // both halves are single lookups: one row of feed_version, and a backward seek of
+    // idx_videos_created_at_id to the first row the caller may see
+    @Query(value = """
+        SELECT (SELECT f.version FROM feed_version f) AS version,
+               (SELECT MAX(v.created_at) FROM videos v
+                WHERE v.is_private = false OR v.uploader_id = :userId) AS newest
+    """, nativeQuery = true)
+    FeedStats feedStats(@Param("userId") Long userId);
+
+    // keyset pagination over (createdAt, id): each page starts strictly after the last row of the previous one.
+    // The row comparison is what lets PostgreSQL seek idx_videos_created_at_id; the equivalent
+    // "a < x OR (a = x AND b < y)" is only a filter, so deep pages would scan every newer row.
 
-    
     @Query("""
-        SELECT v FROM Video v
+        SELECT new com.video.dto.VideoResponse(
+            v.id, v.title, v.description, v.isPrivate, u.username, v.createdAt, v.processingStatus)
+        FROM Video v JOIN v.uploader u
         WHERE (:userId IS NULL AND v.isPrivate = false)
-           OR (:userId IS NOT NULL AND (v.isPrivate = false OR v.uploader.id = :userId))
-        ORDER BY v.createdAt DESC
+           OR (:userId IS NOT NULL AND (v.isPrivate = false OR u.id = :userId))
+        ORDER BY v.createdAt DESC, v.id DESC
     """)
-    List<Video> findVisibleVideos(@Param("userId") Long userId);
+    List<VideoResponse> findVisibleVideos(@Param("userId") Long userId, Pageable pageable);
 
     @Query("""
-        SELECT v FROM Video v
-        WHERE (
-              LOWER(v.title) LIKE LOWER(CONCAT('%', :q, '%'))
-           OR LOWER(v.description) LIKE LOWER(CONCAT('%', :q, '%'))
-        )
+        SELECT new com.video.dto.VideoResponse(
+            v.id, v.title, v.description, v.isPrivate, u.username, v.createdAt, v.processingStatus)
+        FROM Video v JOIN v.uploader u
+        WHERE (v.createdAt, v.id) < (:createdAt, :id)
         AND (
               (:userId IS NULL AND v.isPrivate = false)
-           OR (:userId IS NOT NULL AND (v.isPrivate = false OR v.uploader.id = :userId))
+           OR (:userId IS NOT NULL AND (v.isPrivate = false OR u.id = :userId))
         )
-        ORDER BY v.createdAt DESC
+        ORDER BY v.createdAt DESC, v.id DESC
+    """)
+    List<VideoResponse> findVisibleVideosAfter(@Param("userId") Long userId,
+                                       @Param("createdAt") OffsetDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    // full-text search over the generated search_vector column (see schema-postgresql.sql), best match first
+
+    @Query(value = """
+        SELECT * FROM (
+            SELECT v.id AS id, v.title AS title, v.description AS description, v.is_private AS "isPrivate",
+                   u.username AS "uploaderUsername", v.created_at AS "createdAt",
+                   v.processing_status AS "processingStatus", ts_rank(v.search_vector, q) AS rank
+            FROM videos v
+            JOIN users u ON u.id = v.uploader_id
+            CROSS JOIN to_tsquery('simple', :tsquery) q
+            WHERE v.search_vector @@ q
+            AND (v.is_private = false OR v.uploader_id = :userId)
+        ) hit
+        ORDER BY hit.rank DESC, hit."createdAt" DESC, hit.id DESC
+    """, nativeQuery = true)
+    List<VideoSearchHit> searchVisibleVideos(@Param("tsquery") String tsquery,
+                                             @Param("userId") Long userId,
+                                             Pageable pageable);
+
+    @Query(value = """
+        SELECT * FROM (
+            SELECT v.id AS id, v.title AS title, v.description AS description, v.is_private AS "isPrivate",
+                   u.username AS "uploaderUsername", v.created_at AS "createdAt",
+                   v.processing_status AS "processingStatus", ts_rank(v.search_vector, q) AS rank
+            FROM videos v
+            JOIN users u ON u.id = v.uploader_id
+            CROSS JOIN to_tsquery('simple', :tsquery) q
+            WHERE v.search_vector @@ q
+            AND (v.is_private = false OR v.uploader_id = :userId)
+        ) hit
+        WHERE hit.rank < CAST(:rank AS real)
+           OR (hit.rank = CAST(:rank AS real)
+               AND (hit."createdAt" < :createdAt OR (hit."createdAt" = :createdAt AND hit.id < :id)))
+        ORDER BY hit.rank DESC, hit."createdAt" DESC, hit.id DESC
+    """, nativeQuery = true)
+    List<VideoSearchHit> searchVisibleVideosAfter(@Param("tsquery") String tsquery,
+                                                  @Param("userId") Long userId,
+                                                  @Param("rank") float rank,
+                                                  @Param("createdAt") OffsetDateTime createdAt,
+                                                  @Param("id") Long id,
+                                                  Pageable pageable);
+
+    @Query("""
+        SELECT new com.video.repositories.ThumbnailRow(
+            v.id, v.isPrivate, t.id, t.volume, t.storedFilename, t.contentType, t.sizeBytes, t.createdAt)
+        FROM Video v JOIN v.thumbnailFile t
+        WHERE v.id IN :ids
+        AND (v.isPrivate = false OR v.uploader.id = :userId)
+    """)
+    List<ThumbnailRow> findVisibleThumbnails(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    @Query("SELECT new com.video.dto.VideoSuggestion(v.id, v.title) FROM Video v WHERE v.isPrivate = false ORDER BY v.id")
+    List<VideoSuggestion> findPublicTitles();
+
+    @Query("SELECT v.id FROM Video v WHERE v.processingStatus = :status ORDER BY v.id")
+    List<Long> findIdsByProcessingStatus(@Param("status") ProcessingStatus status, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Video v SET v.processingLeaseUntil = :until WHERE v.id IN :ids AND v.processingStatus = :status")
+    int renewProcessingLeases(@Param("ids") Collection<Long> ids,
+                              @Param("status") ProcessingStatus status,
+                              @Param("until") OffsetDateTime until);
+
+    // rows claimed before leases existed have none and count as expired
+    @Modifying
+    @Query("""
+        UPDATE Video v SET v.processingStatus = :to, v.processingLeaseUntil = null
+        WHERE v.processingStatus = :from AND (v.processingLeaseUntil IS NULL OR v.processingLeaseUntil < :now)
     """)
-    List<Video> searchVisibleVideos(@Param("q") String q, @Param("userId") Long userId);
-}
\ No newline at end of file
+    int releaseExpiredLeases(@Param("from") ProcessingStatus from,
+                             @Param("to") ProcessingStatus to,
+                             @Param("now") OffsetDateTime now);
+}
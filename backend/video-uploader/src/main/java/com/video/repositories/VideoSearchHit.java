@@ -0,0 +1,14 @@
+package com.video.repositories;
+
+import java.time.Instant;
+
+public interface VideoSearchHit {
+    Long getId();
+    String getTitle();
+    String getDescription();
+    Boolean getIsPrivate();
+    String getUploaderUsername();
+    Instant getCreatedAt();
+    String getProcessingStatus();
+    Float getRank();
+}
@@ -0,0 +1,15 @@
+package com.video.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal placed in the security context by {@link JwtAuthenticationFilter}. The id comes from
+ * the token's uid claim and is null for tokens issued before that claim existed.
+ */
+public record AuthenticatedUser(Long id, String username) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -12,8 +12,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -40,15 +38,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter{
         }
         final String token = header.substring(7);
         try{
-            Claims claims = Jwts.parser()
-                .verifyWith((javax.crypto.SecretKey) jwtService.getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-            String username = claims.getSubject();
+            AuthenticatedUser principal = jwtService.authenticate(token);
 
             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                    username,
+                    principal,
                     null,
                     Collections.emptyList()
             );
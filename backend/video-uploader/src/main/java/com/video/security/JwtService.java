@@ -1,54 +1,92 @@
 package com.video.security;
 
-import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 
+import javax.crypto.SecretKey;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
-    
-    @Value("${jwt.expiration:86400000}")
-    private long EXPIRATION;
+    public static final String USER_ID_CLAIM = "uid";
+
+    private static final int VERIFIED_CACHE_SIZE = 10_000;
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long expiration;
 
-    public Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    // tokens whose signature has already been checked, each dropped at its own exp claim
+    private final Cache<String, Verified> verified = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_CACHE_SIZE)
+            .expireAfter(Expiry.creating((String token, Verified v) ->
+                    Duration.ofMillis(Math.max(0, v.expiresAt() - System.currentTimeMillis()))))
+            .build();
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration:86400000}") long expiration) {
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.expiration = expiration;
+    }
+
+    public SecretKey getSigningKey() {
+        return signingKey;
     }
-    
-    public String generateToken(String username) {
+
+    public String generateToken(Long userId, String username) {
         return Jwts.builder()
                 .subject(username)
+                .claim(USER_ID_CLAIM, userId)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + EXPIRATION))
-                .signWith(getSigningKey())
+                .expiration(new Date(System.currentTimeMillis() + expiration))
+                .signWith(signingKey)
                 .compact();
     }
-    
+
+    /**
+     * Verifies the token and returns its principal, throwing {@link JwtException} when the token
+     * is invalid or expired. Repeat calls with the same token skip the HMAC and JSON parsing.
+     */
+    public AuthenticatedUser authenticate(String token) {
+        Verified cached = verified.getIfPresent(token);
+        if (cached != null) {
+            return cached.user();
+        }
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        AuthenticatedUser user = new AuthenticatedUser(claims.get(USER_ID_CLAIM, Long.class), claims.getSubject());
+        if (claims.getExpiration() != null) {
+            verified.put(token, new Verified(user, claims.getExpiration().getTime()));
+        }
+        return user;
+    }
+
     public String extractUsername(String token) {
-        return Jwts.parser()
-                .verifyWith((javax.crypto.SecretKey) getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return authenticate(token).username();
     }
-    
+
     public boolean isTokenValid(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith((javax.crypto.SecretKey) getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
+            authenticate(token);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
+
+    private record Verified(AuthenticatedUser user, long expiresAt) {}
 }
@@ -0,0 +1,244 @@
+package com.video.services;
+
+import com.video.dto.CreateUploadRequest;
+import com.video.dto.UploadSessionResponse;
+import com.video.dto.VideoResponse;
+import com.video.entities.UploadSession;
+import com.video.repositories.UploadSessionRepository;
+import com.video.repositories.UserRepository;
+import com.video.security.AuthenticatedUser;
+import com.video.storage.StorageFileNotFoundException;
+import com.video.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UserRepository userRepository;
+    private final StorageService storageService;
+    private final VideoService videoService;
+    private final UploadProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public ChunkedUploadService(UploadSessionRepository uploadSessionRepository,
+                                UserRepository userRepository,
+                                StorageService storageService,
+                                VideoService videoService,
+                                UploadProperties properties,
+                                PlatformTransactionManager transactionManager) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.userRepository = userRepository;
+        this.storageService = storageService;
+        this.videoService = videoService;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public UploadSessionResponse create(CreateUploadRequest request) {
+        AuthenticatedUser uploader = videoService.requireCurrentUser();
+        String title = videoService.validateMetadata(request.getTitle(), request.getDescription());
+
+        long totalBytes = request.getTotalBytes();
+        if (totalBytes > properties.getMaxFileSize().toBytes()) {
+            throw new ResponseStatusException(HttpStatus.CONTENT_TOO_LARGE, "File exceeds the maximum upload size");
+        }
+
+        int chunkSize = (request.getChunkSize() == null)
+                ? (int) properties.getChunkSize().toBytes()
+                : request.getChunkSize();
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > properties.getMaxChunkSize().toBytes()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Chunk size must be between " + MIN_CHUNK_SIZE + " and " + properties.getMaxChunkSize().toBytes() + " bytes");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUploader(userRepository.getReferenceById(uploader.id()));
+        session.setTitle(title);
+        session.setDescription(request.getDescription());
+        session.setPrivate(Boolean.TRUE.equals(request.getIsPrivate()));
+        session.setOriginalFilename(request.getFilename());
+        session.setContentType(request.getContentType() == null || request.getContentType().isBlank()
+                ? "application/octet-stream"
+                : request.getContentType());
+        session.setTotalBytes(totalBytes);
+        session.setChunkSize(chunkSize);
+        session.setReceivedChunks(new BitSet(chunkCount(session)).toByteArray());
+        session.setExpiresAt(nextExpiry());
+
+        // chunks never create the staging file, so one arriving after complete or abort cannot leave a stray copy
+        storageService.beginUpload(session.getId());
+        try {
+            return toResponse(uploadSessionRepository.save(session));
+        } catch (RuntimeException e) {
+            storageService.deleteUpload(session.getId());
+            throw e;
+        }
+    }
+
+    public UploadSessionResponse status(String uploadId) {
+        return toResponse(requireOwnedSession(uploadId));
+    }
+
+    public UploadSessionResponse writeChunk(String uploadId, long offset, InputStream body) {
+        UploadSession session = requireOwnedSession(uploadId);
+
+        if (offset < 0 || offset >= session.getTotalBytes() || offset % session.getChunkSize() != 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Offset must be a multiple of the chunk size within the file");
+        }
+
+        long expected = Math.min(session.getChunkSize(), session.getTotalBytes() - offset);
+        long written;
+        try {
+            written = storageService.writeChunk(uploadId, offset, body, expected);
+        } catch (StorageFileNotFoundException e) {
+            // completed, aborted or swept since the session was read
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found");
+        }
+        if (written != expected) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Incomplete chunk: expected " + expected + " bytes, received " + written);
+        }
+
+        int index = (int) (offset / session.getChunkSize());
+        UploadSession updated = transactionTemplate.execute(tx -> {
+            UploadSession locked = uploadSessionRepository.findByIdForUpdate(uploadId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found"));
+            BitSet received = BitSet.valueOf(locked.getReceivedChunks());
+            received.set(index);
+            locked.setReceivedChunks(received.toByteArray());
+            locked.setExpiresAt(nextExpiry());
+            return uploadSessionRepository.save(locked);
+        });
+
+        return toResponse(updated);
+    }
+
+    public VideoResponse complete(String uploadId) {
+        AuthenticatedUser uploader = videoService.requireCurrentUser();
+
+        Finished finished = transactionTemplate.execute(tx -> {
+            UploadSession locked = uploadSessionRepository.findByIdForUpdate(uploadId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found"));
+            requireOwner(locked, uploader);
+
+            if (committedOffset(locked) < locked.getTotalBytes()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is missing chunks");
+            }
+
+            // moved under the row lock so a concurrent complete cannot claim the same staged file
+            StorageService.StoredFile stored = storageService.storeUpload(
+                    uploadId, locked.getOriginalFilename(), locked.getContentType());
+            uploadSessionRepository.delete(locked);
+            return new Finished(locked, stored);
+        });
+
+        UploadSession session = finished.session();
+        return videoService.publish(uploader, finished.stored(), session.getTitle(), session.getDescription(), session.isPrivate());
+    }
+
+    public void abort(String uploadId) {
+        requireOwnedSession(uploadId);
+        // under the row lock, so it cannot interleave with a complete of the same session
+        transactionTemplate.executeWithoutResult(tx -> uploadSessionRepository.findByIdForUpdate(uploadId)
+                .ifPresent(locked -> {
+                    uploadSessionRepository.delete(locked);
+                    storageService.deleteUpload(uploadId);
+                }));
+    }
+
+    @Scheduled(fixedDelayString = "${upload.cleanup-interval:PT5M}")
+    public void removeExpiredSessions() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<UploadSession> expired = uploadSessionRepository.findByExpiresAtBefore(now);
+        for (UploadSession session : expired) {
+            try {
+                // a chunk may have renewed the session since it was listed
+                transactionTemplate.executeWithoutResult(tx -> uploadSessionRepository.findByIdForUpdate(session.getId())
+                        .filter(locked -> locked.getExpiresAt().isBefore(now))
+                        .ifPresent(locked -> {
+                            uploadSessionRepository.delete(locked);
+                            storageService.deleteUpload(locked.getId());
+                        }));
+            } catch (RuntimeException e) {
+                log.warn("Could not remove expired upload {}", session.getId(), e);
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("Removed {} expired upload sessions", expired.size());
+        }
+    }
+
+    private UploadSession requireOwnedSession(String uploadId) {
+        AuthenticatedUser current = videoService.requireCurrentUser();
+        UploadSession session = uploadSessionRepository.findById(uploadId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found"));
+        requireOwner(session, current);
+
+        if (session.getExpiresAt().isBefore(OffsetDateTime.now(ZoneOffset.UTC))) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Upload session expired");
+        }
+        return session;
+    }
+
+    private void requireOwner(UploadSession session, AuthenticatedUser user) {
+        if (!session.getUploader().getId().equals(user.id())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found");
+        }
+    }
+
+    private OffsetDateTime nextExpiry() {
+        return OffsetDateTime.now(ZoneOffset.UTC).plus(properties.getSessionTtl());
+    }
+
+    private int chunkCount(UploadSession session) {
+        return (int) ((session.getTotalBytes() + session.getChunkSize() - 1) / session.getChunkSize());
+    }
+
+    private long committedOffset(UploadSession session) {
+        int firstMissing = BitSet.valueOf(session.getReceivedChunks()).nextClearBit(0);
+        return Math.min((long) firstMissing * session.getChunkSize(), session.getTotalBytes());
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        BitSet received = BitSet.valueOf(session.getReceivedChunks());
+        long lastChunkSize = session.getTotalBytes() - (long) (chunkCount(session) - 1) * session.getChunkSize();
+        long receivedBytes = (long) received.cardinality() * session.getChunkSize();
+        if (received.get(chunkCount(session) - 1)) {
+            receivedBytes -= session.getChunkSize() - lastChunkSize;
+        }
+
+        long committed = committedOffset(session);
+        return new UploadSessionResponse(
+                session.getId(),
+                session.getTotalBytes(),
+                session.getChunkSize(),
+                committed,
+                receivedBytes,
+                committed == session.getTotalBytes(),
+                session.getExpiresAt()
+        );
+    }
+
+    private record Finished(UploadSession session, StorageService.StoredFile stored) {}
+}
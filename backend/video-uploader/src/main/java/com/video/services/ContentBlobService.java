@@ -0,0 +1,112 @@
+package com.video.services;
+
+import com.video.entities.ContentBlob;
+import com.video.entities.RawFile;
+import com.video.repositories.ContentBlobRepository;
+import com.video.storage.StorageProperties;
+import com.video.storage.StorageService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Reference counts for content-addressed blobs. Every raw_files row that points at a blob holds
+ * one reference, so the bytes and the derived thumbnail are shared between duplicate uploads.
+ */
+@Service
+public class ContentBlobService {
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final TransactionTemplate newTransaction;
+    private final boolean enabled;
+
+    public ContentBlobService(ContentBlobRepository contentBlobRepository,
+                              PlatformTransactionManager transactionManager,
+                              StorageProperties properties) {
+        this.contentBlobRepository = contentBlobRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = properties.isContentAddressed();
+    }
+
+    /**
+     * Whether the file is stored under its digest, where an identical upload still in flight may
+     * already be counting on it. Such a file is only removed once its blob's ref count allows.
+     */
+    public boolean isShared(StorageService.StoredFile stored) {
+        return enabled && stored.sha256() != null;
+    }
+
+    public Optional<RawFile> sharedThumbnail(StorageService.StoredFile stored) {
+        return sharedThumbnail(stored.sha256());
+    }
+
+    public Optional<RawFile> sharedThumbnail(String sha256) {
+        if (!enabled || sha256 == null) {
+            return Optional.empty();
+        }
+        return contentBlobRepository.findById(sha256)
+                .filter(blob -> blob.getThumbnailStoredFilename() != null)
+                .map(blob -> {
+                    RawFile thumb = new RawFile();
+                    thumb.setOriginalFilename("thumbnail.jpg");
+                    thumb.setStoredFilename(blob.getThumbnailStoredFilename());
+                    thumb.setContentType("image/jpeg");
+                    thumb.setSizeBytes(blob.getThumbnailSizeBytes());
+                    thumb.setFilePath(blob.getThumbnailFilePath());
+                    thumb.setVolume(blob.getThumbnailVolume());
+                    return thumb;
+                });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void acquire(StorageService.StoredFile stored, RawFile thumbnail) {
+        if (!enabled || stored.sha256() == null) {
+            return;
+        }
+
+        createIfAbsent(stored);
+        contentBlobRepository.incrementRefCount(stored.sha256());
+
+        attachThumbnail(stored.sha256(), thumbnail);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void attachThumbnail(String sha256, RawFile thumbnail) {
+        if (!enabled || sha256 == null || thumbnail == null) {
+            return;
+        }
+        contentBlobRepository.attachThumbnail(
+                sha256, thumbnail.getStoredFilename(), thumbnail.getFilePath(), thumbnail.getVolume(), thumbnail.getSizeBytes());
+    }
+
+    private void createIfAbsent(StorageService.StoredFile stored) {
+        if (contentBlobRepository.existsById(stored.sha256())) {
+            return;
+        }
+
+        // committed on its own so that two identical uploads finishing together cannot both insert;
+        // the loser hits the primary key, and both then increment the same row
+        try {
+            newTransaction.executeWithoutResult(tx -> {
+                ContentBlob blob = new ContentBlob();
+                blob.setSha256(stored.sha256());
+                blob.setStoredFilename(stored.storedFilename());
+                blob.setSizeBytes(stored.sizeBytes());
+                blob.setVolume(stored.volume());
+                blob.setRefCount(0);
+                blob.setCreatedAt(LocalDateTime.now());
+                contentBlobRepository.saveAndFlush(blob);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // another upload created it first
+        }
+    }
+}
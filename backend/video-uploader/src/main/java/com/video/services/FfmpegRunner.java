@@ -0,0 +1,88 @@
+package com.video.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class FfmpegRunner {
+
+    private final MediaProperties properties;
+    private final MeterRegistry registry;
+
+    public FfmpegRunner(MediaProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    /**
+     * Runs ffmpeg and waits for it, recording its wall time under {@code video.ffmpeg} tagged with
+     * the task, the outcome and the exit code.
+     */
+    public void run(String task, List<String> args, Duration timeout) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        String exitCode = "none";
+        try {
+            int exit = execute(args, timeout);
+            exitCode = String.valueOf(exit);
+            if (exit != 0) {
+                outcome = "failure";
+                throw new MediaProcessingException("ffmpeg failed (exit code " + exit + ")");
+            }
+            outcome = "success";
+        } catch (FfmpegTimeoutException e) {
+            outcome = "timeout";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("video.ffmpeg")
+                    .description("ffmpeg wall time")
+                    .tag("task", task)
+                    .tag("outcome", outcome)
+                    .tag("exit", exitCode)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private int execute(List<String> args, Duration timeout) {
+        List<String> command = new ArrayList<>(args.size() + 1);
+        command.add(properties.getFfmpeg());
+        command.addAll(args);
+
+        Process p;
+        try {
+            p = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException e) {
+            throw new MediaProcessingException("Could not start ffmpeg", e);
+        }
+
+        try {
+            if (!p.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                p.destroyForcibly();
+                throw new FfmpegTimeoutException("ffmpeg timed out after " + timeout);
+            }
+        } catch (InterruptedException e) {
+            p.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new MediaProcessingException("ffmpeg interrupted", e);
+        }
+
+        return p.exitValue();
+    }
+
+    private static class FfmpegTimeoutException extends MediaProcessingException {
+        FfmpegTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.video.services;
+
+import com.video.entities.Video;
+import com.video.entities.VideoRendition;
+import com.video.storage.StorageLayout;
+import com.video.storage.StorageService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Transcodes a stored video into an HLS ladder, one ffmpeg run per configured rendition, and moves
+ * every variant playlist and segment into storage under {@code renditions/<shard>/<videoId>/<rendition>/}
+ * on the volume that holds the source video.
+ */
+@Component
+public class HlsPackager {
+
+    public static final String PLAYLIST = "index.m3u8";
+
+    // ffmpeg's single-variant master playlist, read for the frame size and codecs it measured, then dropped
+    private static final String MASTER = "master.m3u8";
+    private static final Pattern RESOLUTION = Pattern.compile("RESOLUTION=(\\d+)x(\\d+)");
+    private static final Pattern CODECS = Pattern.compile("CODECS=\"([^\"]+)\"");
+
+    private final FfmpegRunner ffmpeg;
+    private final StorageService storageService;
+    private final MediaProperties.Hls properties;
+
+    public HlsPackager(FfmpegRunner ffmpeg, StorageService storageService, MediaProperties properties) {
+        this.ffmpeg = ffmpeg;
+        this.storageService = storageService;
+        this.properties = properties.getHls();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled() && !properties.getRenditions().isEmpty();
+    }
+
+    public List<VideoRendition> packageVideo(Video video) {
+        Path work;
+        try {
+            work = Files.createTempDirectory(Path.of(properties.getWorkDir()), "hls-" + video.getId() + "-");
+        } catch (IOException e) {
+            throw new MediaProcessingException("Could not create HLS work directory", e);
+        }
+
+        try {
+            List<VideoRendition> renditions = new ArrayList<>();
+            for (MediaProperties.Rendition r : properties.getRenditions()) {
+                renditions.add(packageRendition(video, r, work.resolve(r.getName())));
+            }
+            return renditions;
+        } finally {
+            deleteRecursively(work);
+        }
+    }
+
+    public static String contentType(String filename) {
+        if (filename.endsWith(".m3u8")) return "application/vnd.apple.mpegurl";
+        if (filename.endsWith(".m4s")) return "video/iso.segment";
+        if (filename.endsWith(".ts")) return "video/mp2t";
+        if (filename.endsWith(".mp4")) return "video/mp4";
+        return "application/octet-stream";
+    }
+
+    private VideoRendition packageRendition(Video video, MediaProperties.Rendition r, Path dir) {
+        boolean fmp4 = "fmp4".equalsIgnoreCase(properties.getSegmentType());
+
+        List<String> args = new ArrayList<>(List.of(
+                "-y",
+                "-i", storageService.mediaInput(video.getVideoFile().getVolume(), video.getVideoFile().getStoredFilename()),
+                "-map", "0:v:0",
+                "-map", "0:a:0?",
+                "-vf", "scale=-2:" + r.getHeight(),
+                "-c:v", "libx264",
+                "-preset", "veryfast",
+                "-b:v", r.getVideoKbps() + "k",
+                "-maxrate", (r.getVideoKbps() * 107 / 100) + "k",
+                "-bufsize", (r.getVideoKbps() * 2) + "k",
+                "-c:a", "aac",
+                "-b:a", r.getAudioKbps() + "k",
+                "-ac", "2",
+                "-f", "hls",
+                "-hls_time", String.valueOf(properties.getSegmentSeconds()),
+                "-hls_playlist_type", "vod",
+                "-master_pl_name", MASTER
+        ));
+        if (fmp4) {
+            args.addAll(List.of("-hls_segment_type", "fmp4", "-hls_fmp4_init_filename", "init.mp4"));
+        }
+        args.addAll(List.of(
+                "-hls_segment_filename", dir.resolve(fmp4 ? "seg_%05d.m4s" : "seg_%05d.ts").toString(),
+                dir.resolve(PLAYLIST).toString()
+        ));
+
+        try {
+            Files.createDirectories(dir);
+            ffmpeg.run("hls", args, properties.getTimeout());
+
+            if (!Files.exists(dir.resolve(PLAYLIST))) {
+                throw new MediaProcessingException("HLS packaging produced no playlist for " + r.getName());
+            }
+            String streamInf = streamInf(dir.resolve(MASTER));
+
+            String prefix = StorageLayout.renditionPrefix(video.getId()) + r.getName() + "/";
+            String volume = Objects.requireNonNullElse(video.getVideoFile().getVolume(), StorageService.PRIMARY_VOLUME);
+            long size = 0;
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    String name = file.getFileName().toString();
+                    size += storageService.storeDerived(file, volume, prefix + name, contentType(name)).sizeBytes();
+                }
+            }
+
+            VideoRendition rendition = new VideoRendition();
+            rendition.setVideo(video);
+            rendition.setName(r.getName());
+            rendition.setHeight(r.getHeight());
+            Matcher resolution = RESOLUTION.matcher(streamInf);
+            if (resolution.find()) {
+                // the width follows the source's aspect ratio, so only ffmpeg knows it
+                rendition.setWidth(Integer.parseInt(resolution.group(1)));
+                rendition.setHeight(Integer.parseInt(resolution.group(2)));
+            }
+            Matcher codecs = CODECS.matcher(streamInf);
+            if (codecs.find()) {
+                rendition.setCodecs(codecs.group(1));
+            }
+            rendition.setBandwidth((long) (r.getVideoKbps() * 107 / 100 + r.getAudioKbps()) * 1000);
+            rendition.setStoragePrefix(prefix);
+            rendition.setVolume(volume);
+            rendition.setPlaylistFilename(PLAYLIST);
+            rendition.setSizeBytes(size);
+            return rendition;
+
+        } catch (IOException e) {
+            throw new MediaProcessingException("HLS packaging failed for " + r.getName(), e);
+        }
+    }
+
+    // the attributes line of ffmpeg's master playlist, or empty if it wrote none; the file is
+    // deleted so it is not stored with the segments
+    private static String streamInf(Path master) throws IOException {
+        if (!Files.exists(master)) {
+            return "";
+        }
+        try (Stream<String> lines = Files.lines(master)) {
+            return lines.filter(line -> line.startsWith("#EXT-X-STREAM-INF:")).findFirst().orElse("");
+        } finally {
+            Files.delete(master);
+        }
+    }
+
+    private void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException ignored) {
+        }
+    }
+}
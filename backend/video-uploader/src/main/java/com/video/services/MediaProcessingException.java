@@ -0,0 +1,12 @@
+package com.video.services;
+
+public class MediaProcessingException extends RuntimeException {
+
+  public MediaProcessingException(String message) {
+    super(message);
+  }
+
+  public MediaProcessingException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
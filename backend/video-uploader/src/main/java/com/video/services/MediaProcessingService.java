@@ -0,0 +1,219 @@
+package com.video.services;
+
+import com.video.entities.ProcessingStatus;
+import com.video.entities.RawFile;
+import com.video.entities.Video;
+import com.video.entities.VideoRendition;
+import com.video.repositories.VideoRenditionRepository;
+import com.video.repositories.VideoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates thumbnails, and HLS renditions when enabled, off the request thread. The videos table
+ * is the durable queue: anything PENDING is picked up by the bounded worker pool, and a periodic sweep re-enqueues work that did
+ * not fit in the in-memory queue, failed and is due for a retry, or was interrupted by a restart.
+ */
+@Service
+public class MediaProcessingService {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaProcessingService.class);
+
+    private final VideoRepository videoRepository;
+    private final VideoRenditionRepository videoRenditionRepository;
+    private final ContentBlobService contentBlobService;
+    private final ThumbnailGenerator thumbnailGenerator;
+    private final HlsPackager hlsPackager;
+    private final ThumbnailCache thumbnailCache;
+    private final MediaProperties properties;
+    private final MeterRegistry registry;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public MediaProcessingService(VideoRepository videoRepository,
+                                  VideoRenditionRepository videoRenditionRepository,
+                                  ContentBlobService contentBlobService,
+                                  ThumbnailGenerator thumbnailGenerator,
+                                  HlsPackager hlsPackager,
+                                  ThumbnailCache thumbnailCache,
+                                  MediaProperties properties,
+                                  PlatformTransactionManager transactionManager,
+                                  Environment environment,
+                                  MeterRegistry registry) {
+        this.videoRepository = videoRepository;
+        this.videoRenditionRepository = videoRenditionRepository;
+        this.contentBlobService = contentBlobService;
+        this.thumbnailGenerator = thumbnailGenerator;
+        this.hlsPackager = hlsPackager;
+        this.thumbnailCache = thumbnailCache;
+        this.properties = properties;
+        this.registry = registry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = new ThreadPoolExecutor(
+                properties.getWorkers(),
+                properties.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                workerThreadFactory(environment),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("video.media.queue", executor, e -> e.getQueue().size())
+                .description("Videos waiting for a media worker")
+                .register(registry);
+        Gauge.builder("video.media.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Videos being processed")
+                .register(registry);
+    }
+
+    // workers mostly wait on ffmpeg, so in virtual-thread mode they need no platform thread each;
+    // the pool size still bounds how many ffmpeg processes run at once
+    private static ThreadFactory workerThreadFactory(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Thread.ofVirtual().name("media-worker-", 1).factory();
+        }
+        return new CustomizableThreadFactory("media-worker-");
+    }
+
+    public void enqueue(Long videoId) {
+        if (!inFlight.add(videoId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> process(videoId));
+        } catch (RejectedExecutionException e) {
+            // stays PENDING in the database; the next sweep will try again
+            inFlight.remove(videoId);
+        }
+    }
+
+    // videos this instance was processing when it stopped come back once their lease runs out;
+    // a peer's live ones keep theirs, since it renews them on every sweep
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        sweep();
+    }
+
+    @Scheduled(fixedDelayString = "${media.sweep-interval:PT30S}", initialDelayString = "${media.sweep-interval:PT30S}")
+    public void sweep() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        if (!inFlight.isEmpty()) {
+            transactionTemplate.executeWithoutResult(tx -> videoRepository.renewProcessingLeases(
+                    List.copyOf(inFlight), ProcessingStatus.PROCESSING, now.plus(properties.getLease())));
+        }
+        int abandoned = transactionTemplate.execute(tx ->
+                videoRepository.releaseExpiredLeases(ProcessingStatus.PROCESSING, ProcessingStatus.PENDING, now));
+        if (abandoned > 0) {
+            log.info("Re-queued {} videos whose processing lease expired", abandoned);
+        }
+
+        int free = executor.getQueue().remainingCapacity();
+        if (free <= 0) {
+            return;
+        }
+        List<Long> pending = videoRepository.findIdsByProcessingStatus(ProcessingStatus.PENDING, PageRequest.of(0, free));
+        pending.forEach(this::enqueue);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void process(Long videoId) {
+        try {
+            Video video = transactionTemplate.execute(tx -> {
+                Video v = videoRepository.findById(videoId).orElse(null);
+                if (v == null || v.getProcessingStatus() != ProcessingStatus.PENDING) {
+                    return null;
+                }
+                v.setProcessingStatus(ProcessingStatus.PROCESSING);
+                v.setProcessingAttempts(attempts(v) + 1);
+                v.setProcessingLeaseUntil(OffsetDateTime.now(ZoneOffset.UTC).plus(properties.getLease()));
+                return videoRepository.save(v);
+            });
+            if (video == null) {
+                return;
+            }
+
+            try {
+                RawFile videoRaw = video.getVideoFile();
+
+                if (video.getThumbnailFile() == null) {
+                    // an identical upload may have finished its thumbnail while this one waited in the queue
+                    RawFile thumb = contentBlobService.sharedThumbnail(videoRaw.getSha256())
+                            .orElseGet(() -> thumbnailGenerator.generate(videoRaw));
+
+                    transactionTemplate.executeWithoutResult(tx -> {
+                        Video v = videoRepository.findById(videoId).orElseThrow();
+                        v.setThumbnailFile(thumb);
+                        contentBlobService.attachThumbnail(videoRaw.getSha256(), thumb);
+                        videoRepository.save(v);
+                    });
+                    thumbnailCache.invalidate(videoId);
+                }
+
+                // each step's result is persisted, so a retry only redoes what is still missing
+                if (hlsPackager.isEnabled() && !videoRenditionRepository.existsByVideoId(videoId)) {
+                    List<VideoRendition> renditions = hlsPackager.packageVideo(video);
+                    transactionTemplate.executeWithoutResult(tx -> videoRenditionRepository.saveAll(renditions));
+                }
+
+                transactionTemplate.executeWithoutResult(tx -> {
+                    Video v = videoRepository.findById(videoId).orElseThrow();
+                    v.setProcessingStatus(ProcessingStatus.READY);
+                    v.setProcessingLeaseUntil(null);
+                    videoRepository.save(v);
+                });
+                processed("ready");
+            } catch (RuntimeException e) {
+                boolean exhausted = attempts(video) >= properties.getMaxAttempts();
+                log.warn("Media processing for video {} failed (attempt {} of {})",
+                        videoId, attempts(video), properties.getMaxAttempts(), e);
+
+                transactionTemplate.executeWithoutResult(tx -> videoRepository.findById(videoId).ifPresent(v -> {
+                    v.setProcessingStatus(exhausted ? ProcessingStatus.FAILED : ProcessingStatus.PENDING);
+                    v.setProcessingLeaseUntil(null);
+                    videoRepository.save(v);
+                }));
+                processed(exhausted ? "failed" : "retry");
+            }
+        } catch (RuntimeException e) {
+            log.error("Media processing for video {} aborted", videoId, e);
+        } finally {
+            inFlight.remove(videoId);
+        }
+    }
+
+    private void processed(String outcome) {
+        registry.counter("video.media.processed", "outcome", outcome).increment();
+    }
+
+    private int attempts(Video video) {
+        return (video.getProcessingAttempts() == null) ? 0 : video.getProcessingAttempts();
+    }
+}
@@ -0,0 +1,96 @@
+package com.video.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties("media")
+public class MediaProperties {
+    private String ffmpeg = "ffmpeg";
+    private int workers = 2;
+    private int queueCapacity = 100;
+    private Duration timeout = Duration.ofSeconds(60);
+    private int maxAttempts = 3;
+    private Duration lease = Duration.ofMinutes(2);
+    private final Hls hls = new Hls();
+    private final ThumbnailCache thumbnailCache = new ThumbnailCache();
+
+    public String getFfmpeg() { return ffmpeg; }
+    public void setFfmpeg(String ffmpeg) { this.ffmpeg = ffmpeg; }
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = workers; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+    public Duration getTimeout() { return timeout; }
+    public void setTimeout(Duration timeout) { this.timeout = timeout; }
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+    public Duration getLease() { return lease; }
+    public void setLease(Duration lease) { this.lease = lease; }
+    public Hls getHls() { return hls; }
+    public ThumbnailCache getThumbnailCache() { return thumbnailCache; }
+
+    public static class ThumbnailCache {
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+        private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+
+        public DataSize getMaxSize() { return maxSize; }
+        public void setMaxSize(DataSize maxSize) { this.maxSize = maxSize; }
+        public DataSize getMaxEntrySize() { return maxEntrySize; }
+        public void setMaxEntrySize(DataSize maxEntrySize) { this.maxEntrySize = maxEntrySize; }
+    }
+
+    public static class Hls {
+        private boolean enabled = false;
+        private Duration timeout = Duration.ofMinutes(30);
+        private int segmentSeconds = 6;
+        private String segmentType = "fmp4";
+        private String workDir = System.getProperty("java.io.tmpdir");
+        private List<Rendition> renditions = new ArrayList<>(List.of(
+                new Rendition("360p", 360, 800, 96),
+                new Rendition("720p", 720, 2800, 128),
+                new Rendition("1080p", 1080, 5000, 128)
+        ));
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+        public int getSegmentSeconds() { return segmentSeconds; }
+        public void setSegmentSeconds(int segmentSeconds) { this.segmentSeconds = segmentSeconds; }
+        public String getSegmentType() { return segmentType; }
+        public void setSegmentType(String segmentType) { this.segmentType = segmentType; }
+        public String getWorkDir() { return workDir; }
+        public void setWorkDir(String workDir) { this.workDir = workDir; }
+        public List<Rendition> getRenditions() { return renditions; }
+        public void setRenditions(List<Rendition> renditions) { this.renditions = renditions; }
+    }
+
+    public static class Rendition {
+        private String name;
+        private int height;
+        private int videoKbps;
+        private int audioKbps;
+
+        public Rendition() {}
+
+        public Rendition(String name, int height, int videoKbps, int audioKbps) {
+            this.name = name;
+            this.height = height;
+            this.videoKbps = videoKbps;
+            this.audioKbps = audioKbps;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getHeight() { return height; }
+        public void setHeight(int height) { this.height = height; }
+        public int getVideoKbps() { return videoKbps; }
+        public void setVideoKbps(int videoKbps) { this.videoKbps = videoKbps; }
+        public int getAudioKbps() { return audioKbps; }
+        public void setAudioKbps(int audioKbps) { this.audioKbps = audioKbps; }
+    }
+}
@@ -0,0 +1,97 @@
+package com.video.services;
+
+import com.video.entities.RawFile;
+import com.video.entities.VideoRendition;
+import com.video.repositories.RawFileRepository;
+import com.video.repositories.VideoRenditionRepository;
+import com.video.storage.FileSystemStorageService;
+import com.video.storage.StorageFileNotFoundException;
+import com.video.storage.StorageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Moves files written before the sharded layout into it while the application keeps serving, a
+ * batch per run, when {@code storage.migration.enabled=true}. Each file is renamed first and its
+ * rows updated after; in between, and for any reader still holding the old name, storage resolves
+ * the old name to the new location, so nothing is ever unreadable. An interrupted run simply
+ * starts over, since renaming an already moved file is a no-op.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class StorageLayoutMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageLayoutMigration.class);
+
+    private final RawFileRepository rawFileRepository;
+    private final VideoRenditionRepository videoRenditionRepository;
+    private final FileSystemStorageService storage;
+    private final StorageProperties.Migration properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private long lastFileId;
+    private long lastRenditionId;
+    private long moved;
+    private volatile boolean finished;
+
+    public StorageLayoutMigration(RawFileRepository rawFileRepository,
+                                  VideoRenditionRepository videoRenditionRepository,
+                                  FileSystemStorageService storage,
+                                  StorageProperties properties,
+                                  PlatformTransactionManager transactionManager) {
+        this.rawFileRepository = rawFileRepository;
+        this.videoRenditionRepository = videoRenditionRepository;
+        this.storage = storage;
+        this.properties = properties.getMigration();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.migration.interval:PT10S}", initialDelayString = "${storage.migration.interval:PT10S}")
+    public void migrateBatch() {
+        if (!properties.isEnabled() || finished) {
+            return;
+        }
+
+        List<RawFile> files = rawFileRepository.findFlatAfter(lastFileId, PageRequest.of(0, properties.getBatchSize()));
+        for (RawFile rf : files) {
+            lastFileId = rf.getId();
+            String oldName = rf.getStoredFilename();
+            try {
+                String newName = storage.relocate(rf.getVolume(), oldName);
+                String filePath = storage.resolve(rf.getVolume(), newName).toString();
+                transactionTemplate.executeWithoutResult(tx -> rawFileRepository.relocate(oldName, newName, filePath));
+                moved++;
+            } catch (StorageFileNotFoundException e) {
+                log.warn("Skipping raw file {}: {} is missing", rf.getId(), oldName);
+            }
+        }
+
+        List<VideoRendition> renditions = files.isEmpty()
+                ? videoRenditionRepository.findLegacyLayoutAfter(lastRenditionId, PageRequest.of(0, properties.getBatchSize()))
+                : List.of();
+        for (VideoRendition r : renditions) {
+            lastRenditionId = r.getId();
+            String oldDir = r.getStoragePrefix().substring(0, r.getStoragePrefix().length() - 1);
+            try {
+                String newPrefix = storage.relocate(r.getVolume(), oldDir) + "/";
+                transactionTemplate.executeWithoutResult(tx -> videoRenditionRepository.updateStoragePrefix(r.getId(), newPrefix));
+                moved++;
+            } catch (StorageFileNotFoundException e) {
+                log.warn("Skipping rendition {}: {} is missing", r.getId(), oldDir);
+            }
+        }
+
+        if (files.isEmpty() && renditions.isEmpty()) {
+            finished = true;
+            log.info("Storage layout migration finished; {} files and rendition directories moved", moved);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.video.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.video.entities.RawFile;
+import com.video.entities.Video;
+import com.video.repositories.VideoRepository;
+import com.video.storage.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Thumbnail bytes together with the privacy and owner fields needed to authorize them, bounded
+ * by total size rather than entry count. Concurrent misses for one video share a single load, and
+ * videos without a thumbnail yet are not cached so the finished thumbnail is picked up at once.
+ * The load runs on the first caller's thread outside any cache lock, so with virtual threads a
+ * slow query or file read never pins a carrier thread.
+ */
+@Component
+public class ThumbnailCache implements MeterBinder {
+
+    // rough per-entry cost of the key, the record and its strings
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final VideoRepository videoRepository;
+    private final StorageService storageService;
+    private final long maxEntryBytes;
+    private final AsyncCache<Long, Thumbnail> cache;
+
+    public ThumbnailCache(VideoRepository videoRepository, StorageService storageService, MediaProperties properties) {
+        this.videoRepository = videoRepository;
+        this.storageService = storageService;
+        this.maxEntryBytes = properties.getThumbnailCache().getMaxEntrySize().toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getThumbnailCache().getMaxSize().toBytes())
+                .weigher((Long id, Thumbnail t) -> t.weight())
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Returns the thumbnail of a video, or empty when the video exists but has no thumbnail yet.
+     * Authorization is left to the caller, which checks {@link Thumbnail#isPrivate()} and
+     * {@link Thumbnail#uploaderId()}.
+     */
+    public Optional<Thumbnail> get(Long videoId) {
+        CompletableFuture<Thumbnail> mine = new CompletableFuture<>();
+        CompletableFuture<Thumbnail> future = cache.get(videoId, (id, executor) -> mine);
+        if (future == mine) {
+            try {
+                mine.complete(load(videoId));
+            } catch (Throwable e) {
+                // waiters must always be released, whatever the load threw
+                mine.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return Optional.ofNullable(future.join());
+        } catch (CompletionException e) {
+            throw (e.getCause() instanceof RuntimeException cause) ? cause : e;
+        }
+    }
+
+    /** Like {@link #get(Long)}, but never loads. */
+    public Optional<Thumbnail> getIfPresent(Long videoId) {
+        CompletableFuture<Thumbnail> future = cache.getIfPresent(videoId);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(future.getNow(null));
+    }
+
+    public void invalidate(Long videoId) {
+        cache.synchronous().invalidate(videoId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "thumbnails");
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private Thumbnail load(Long videoId) {
+        Video video = videoRepository.findById(videoId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
+        RawFile rf = video.getThumbnailFile();
+        if (rf == null) {
+            return null;
+        }
+
+        byte[] bytes = null;
+        if (rf.getSizeBytes() <= maxEntryBytes) {
+            Resource resource = storageService.loadAsResource(rf.getVolume(), rf.getStoredFilename());
+            try (InputStream in = resource.getInputStream()) {
+                bytes = in.readAllBytes();
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Thumbnail not found", e);
+            } finally {
+                StorageService.release(resource);
+            }
+        }
+
+        return new Thumbnail(videoId, video.isPrivate(), video.getUploader().getId(), bytes,
+                rf.getVolume(), rf.getStoredFilename(), rf.getContentType(), rf.getOriginalFilename(),
+                VideoService.etag(rf), VideoService.lastModified(rf));
+    }
+
+    /** {@code bytes} is null for thumbnails over the per-entry limit; only their metadata is kept. */
+    public record Thumbnail(Long videoId,
+                            boolean isPrivate,
+                            Long uploaderId,
+                            byte[] bytes,
+                            String volume,
+                            String storedFilename,
+                            String contentType,
+                            String filename,
+                            String etag,
+                            long lastModified) {
+
+        int weight() {
+            return ENTRY_OVERHEAD + ((bytes == null) ? 0 : bytes.length);
+        }
+    }
+}
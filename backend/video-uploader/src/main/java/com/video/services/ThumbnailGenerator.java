@@ -0,0 +1,69 @@
+package com.video.services;
+
+import com.video.entities.RawFile;
+import com.video.storage.StorageService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@Component
+public class ThumbnailGenerator {
+
+    private final FfmpegRunner ffmpeg;
+    private final StorageService storageService;
+    private final MediaProperties properties;
+
+    public ThumbnailGenerator(FfmpegRunner ffmpeg, StorageService storageService, MediaProperties properties) {
+        this.ffmpeg = ffmpeg;
+        this.storageService = storageService;
+        this.properties = properties;
+    }
+
+    public RawFile generate(RawFile videoRaw) {
+        String storedName = videoRaw.getStoredFilename();
+        int slash = storedName.lastIndexOf('/');
+        String thumbStored = storedName.substring(0, slash + 1) + "thumb-" + storedName.substring(slash + 1) + ".jpg";
+
+        Path partial = null;
+        try {
+            // ffmpeg reads the video wherever the backend keeps it and writes a local file we then store
+            partial = Files.createTempFile("thumb-", ".jpg");
+            ffmpeg.run("thumbnail", List.of(
+                    "-y",
+                    "-ss", "00:00:01",
+                    "-i", storageService.mediaInput(videoRaw.getVolume(), storedName),
+                    "-frames:v", "1",
+                    partial.toString()
+            ), properties.getTimeout());
+
+            if (Files.size(partial) == 0) {
+                throw new MediaProcessingException("Thumbnail generation failed (no output)");
+            }
+
+            StorageService.StoredFile stored = storageService.storeDerived(partial, videoRaw.getVolume(), thumbStored, "image/jpeg");
+
+            RawFile thumb = new RawFile();
+            thumb.setOriginalFilename("thumbnail.jpg");
+            thumb.setStoredFilename(stored.storedFilename());
+            thumb.setContentType("image/jpeg");
+            thumb.setSizeBytes(stored.sizeBytes());
+            thumb.setFilePath(stored.filePath());
+            thumb.setVolume(stored.volume());
+
+            return thumb;
+
+        } catch (IOException e) {
+            throw new MediaProcessingException("Thumbnail generation failed", e);
+        } finally {
+            try {
+                if (partial != null) {
+                    Files.deleteIfExists(partial);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
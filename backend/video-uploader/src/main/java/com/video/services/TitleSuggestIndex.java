@@ -0,0 +1,228 @@
+package com.video.services;
+
+import com.video.dto.VideoSuggestion;
+import com.video.repositories.VideoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process autocomplete over public video titles. Every word is split into padded trigrams
+ * (as pg_trgm does), and each trigram keeps a posting list of entry ordinals in a growing int
+ * array. Ordinals only ever increase, so posting lists stay sorted and a query is an
+ * intersection walked from the newest entry backwards, followed by a word-prefix check.
+ */
+@Component
+public class TitleSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TitleSuggestIndex.class);
+
+    private static final int MAX_TERMS = 8;
+
+    private final VideoRepository videoRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[1024];
+    private String[] titles = new String[1024];
+    // lower-cased words, each preceded by a single space, for the final prefix check
+    private String[] normalized = new String[1024];
+    private int size;
+    private Map<Long, Postings> postings = new HashMap<>();
+
+    // adds that arrive while a rebuild is loading rows; merged in when it swaps
+    private List<VideoSuggestion> pending;
+
+    public TitleSuggestIndex(VideoRepository videoRepository) {
+        this.videoRepository = videoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<VideoSuggestion> rows;
+        try {
+            rows = videoRepository.findPublicTitles();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending.forEach(s -> insert(s.id(), s.title()));
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<Long> late = new HashSet<>();
+            pending.forEach(s -> late.add(s.id()));
+
+            clear();
+            for (VideoSuggestion row : rows) {
+                if (!late.contains(row.id())) {
+                    insert(row.id(), row.title());
+                }
+            }
+            pending.forEach(s -> insert(s.id(), s.title()));
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} public video titles for suggestions", size);
+    }
+
+    public void add(long id, String title) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(new VideoSuggestion(id, title));
+            } else {
+                insert(id, title);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<VideoSuggestion> suggest(String query, int limit) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        if (terms.size() > MAX_TERMS) {
+            terms = terms.subList(0, MAX_TERMS);
+        }
+
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String term : terms) {
+            trigrams("  " + term, grams);
+        }
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[grams.size()];
+            int n = 0;
+            for (long gram : grams) {
+                Postings p = postings.get(gram);
+                if (p == null) {
+                    return List.of();
+                }
+                lists[n++] = p;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            List<VideoSuggestion> result = new ArrayList<>(limit);
+            Postings smallest = lists[0];
+            for (int i = smallest.size - 1; i >= 0 && result.size() < limit; i--) {
+                int ordinal = smallest.ordinals[i];
+                if (containsAll(lists, ordinal) && matchesAll(normalized[ordinal], terms)) {
+                    result.add(new VideoSuggestion(ids[ordinal], titles[ordinal]));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(long id, String title) {
+        List<String> words = terms(title);
+        if (words.isEmpty()) {
+            return;
+        }
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            titles = Arrays.copyOf(titles, size * 2);
+            normalized = Arrays.copyOf(normalized, size * 2);
+        }
+        int ordinal = size++;
+        ids[ordinal] = id;
+        titles[ordinal] = title;
+        normalized[ordinal] = " " + String.join(" ", words);
+
+        Set<Long> grams = new HashSet<>();
+        for (String word : words) {
+            trigrams("  " + word + " ", grams);
+        }
+        for (long gram : grams) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(ordinal);
+        }
+    }
+
+    private void clear() {
+        ids = new long[Math.max(1024, ids.length)];
+        titles = new String[ids.length];
+        normalized = new String[ids.length];
+        size = 0;
+        postings = new HashMap<>();
+    }
+
+    private static boolean containsAll(Postings[] lists, int ordinal) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i].ordinals, 0, lists[i].size, ordinal) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAll(String normalizedTitle, List<String> terms) {
+        for (String term : terms) {
+            if (!normalizedTitle.contains(" " + term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    // three UTF-16 units packed into one long key
+    private static void trigrams(String padded, Set<Long> out) {
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            out.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+    }
+
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+}
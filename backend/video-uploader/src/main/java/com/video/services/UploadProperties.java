@@ -0,0 +1,23 @@
+package com.video.services;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties("upload")
+public class UploadProperties {
+    private DataSize chunkSize = DataSize.ofMegabytes(8);
+    private DataSize maxChunkSize = DataSize.ofMegabytes(32);
+    private DataSize maxFileSize = DataSize.ofMegabytes(500);
+    private Duration sessionTtl = Duration.ofHours(24);
+
+    public DataSize getChunkSize() { return chunkSize; }
+    public void setChunkSize(DataSize chunkSize) { this.chunkSize = chunkSize; }
+    public DataSize getMaxChunkSize() { return maxChunkSize; }
+    public void setMaxChunkSize(DataSize maxChunkSize) { this.maxChunkSize = maxChunkSize; }
+    public DataSize getMaxFileSize() { return maxFileSize; }
+    public void setMaxFileSize(DataSize maxFileSize) { this.maxFileSize = maxFileSize; }
+    public Duration getSessionTtl() { return sessionTtl; }
+    public void setSessionTtl(Duration sessionTtl) { this.sessionTtl = sessionTtl; }
+}
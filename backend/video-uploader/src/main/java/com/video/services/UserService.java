@@ -52,7 +52,7 @@ public class UserService {
 
         userRepository.save(user);
 
-        String token = jwtService.generateToken(user.getUsername());
+        String token = jwtService.generateToken(user.getId(), user.getUsername());
 
         return new AuthResponse(token, user.getUsername(), user.getEmail());
     }
@@ -72,7 +72,7 @@ public class UserService {
             );
         }
 
-        String token = jwtService.generateToken(user.getUsername());
+        String token = jwtService.generateToken(user.getId(), user.getUsername());
 
         return new AuthResponse(token, user.getUsername(), user.getEmail());
     }
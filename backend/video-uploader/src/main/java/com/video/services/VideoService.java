@@ -1,103 +1,320 @@
 package com.video.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.video.dto.MediaUrlsResponse;
+import com.video.dto.VideoPage;
 import com.video.dto.VideoResponse;
+import com.video.dto.VideoSuggestion;
+import com.video.entities.ProcessingStatus;
 import com.video.entities.RawFile;
 import com.video.entities.User;
 import com.video.entities.Video;
+import com.video.entities.VideoRendition;
+import com.video.repositories.FeedStats;
+import com.video.repositories.ThumbnailRow;
 import com.video.repositories.UserRepository;
+import com.video.repositories.VideoRenditionRepository;
 import com.video.repositories.VideoRepository;
+import com.video.repositories.VideoSearchHit;
+import com.video.security.AuthenticatedUser;
+import com.video.security.MediaUrlSigner;
+import com.video.storage.StorageFileNotFoundException;
 import com.video.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.File;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 public class VideoService {
 
+    private static final Logger log = LoggerFactory.getLogger(VideoService.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 24;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int STREAM_PAGE_SIZE = 256;
+    private static final int MAX_SEARCH_TERMS = 8;
+    private static final int USER_CACHE_SIZE = 10_000;
+    private static final Duration USER_CACHE_TTL = Duration.ofMinutes(10);
+    private static final int DEFAULT_SUGGESTIONS = 8;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_THUMBNAIL_BATCH = 100;
+
+    private static final Pattern HLS_FILENAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9_.-]*");
+
     private final VideoRepository videoRepository;
+    private final VideoRenditionRepository videoRenditionRepository;
     private final UserRepository userRepository;
     private final StorageService storageService;
+    private final ContentBlobService contentBlobService;
+    private final MediaProcessingService mediaProcessingService;
+    private final HlsPackager hlsPackager;
+    private final TitleSuggestIndex titleSuggestIndex;
+    private final MediaUrlSigner mediaUrlSigner;
+    private final ThumbnailCache thumbnailCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, Long> userIds = Caffeine.newBuilder()
+            .maximumSize(USER_CACHE_SIZE)
+            .expireAfterWrite(USER_CACHE_TTL)
+            .build();
 
     public VideoService(VideoRepository videoRepository,
+                        VideoRenditionRepository videoRenditionRepository,
                         UserRepository userRepository,
-                        StorageService storageService) {
+                        StorageService storageService,
+                        ContentBlobService contentBlobService,
+                        MediaProcessingService mediaProcessingService,
+                        HlsPackager hlsPackager,
+                        TitleSuggestIndex titleSuggestIndex,
+                        MediaUrlSigner mediaUrlSigner,
+                        ThumbnailCache thumbnailCache,
+                        PlatformTransactionManager transactionManager) {
         this.videoRepository = videoRepository;
+        this.videoRenditionRepository = videoRenditionRepository;
         this.userRepository = userRepository;
         this.storageService = storageService;
+        this.contentBlobService = contentBlobService;
+        this.mediaProcessingService = mediaProcessingService;
+        this.hlsPackager = hlsPackager;
+        this.titleSuggestIndex = titleSuggestIndex;
+        this.mediaUrlSigner = mediaUrlSigner;
+        this.thumbnailCache = thumbnailCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    private String currentUsernameOrNull() {
+    private AuthenticatedUser currentUserOrNull() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getName() == null) return null;
         if ("anonymousUser".equals(auth.getName())) return null;
-        return auth.getName();
+
+        if (auth.getPrincipal() instanceof AuthenticatedUser user && user.id() != null) {
+            return user;
+        }
+
+        // tokens issued before the uid claim only carry the username; looked up outside the
+        // cache's lock so a virtual thread waiting on the query does not pin its carrier
+        Long id = userIds.getIfPresent(auth.getName());
+        if (id == null) {
+            id = userRepository.findByUsername(auth.getName()).map(User::getId).orElse(null);
+            if (id == null) return null;
+            userIds.put(auth.getName(), id);
+        }
+        return new AuthenticatedUser(id, auth.getName());
     }
 
-    private User requireCurrentUser() {
-        String username = currentUsernameOrNull();
-        if (username == null) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+    AuthenticatedUser requireCurrentUser() {
+        AuthenticatedUser user = currentUserOrNull();
+        if (user == null) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
+        return user;
     }
 
     private Long currentUserIdOrNull() {
-        String username = currentUsernameOrNull();
-        if (username == null) return null;
-        return userRepository.findByUsername(username).map(User::getId).orElse(null);
+        AuthenticatedUser user = currentUserOrNull();
+        return (user == null) ? null : user.id();
     }
 
     private void enforcePrivacy(Video video) {
-        if (!video.isPrivate()) return;
+        enforcePrivacy(video.getId(), video.isPrivate(), video.getUploader().getId(), null);
+    }
+
+    private void enforcePrivacy(Video video, MediaUrlSigner.Signature signature) {
+        enforcePrivacy(video.getId(), video.isPrivate(), video.getUploader().getId(), signature);
+    }
+
+    // a valid signed URL stands in for the bearer token of the user it was issued to
+    private void enforcePrivacy(Long videoId, boolean isPrivate, Long uploaderId, MediaUrlSigner.Signature signature) {
+        if (!isPrivate) return;
+
+        if (signature != null) {
+            if (!mediaUrlSigner.verify(videoId, signature) || !uploaderId.equals(signature.userId())) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid or expired media link");
+            }
+            return;
+        }
 
         Long currentUserId = currentUserIdOrNull();
-        if (currentUserId == null || !video.getUploader().getId().equals(currentUserId)) {
+        if (currentUserId == null || !uploaderId.equals(currentUserId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Private video access denied");
         }
     }
 
-    private VideoResponse toResponse(Video v) {
+    private VideoResponse toResponse(VideoSearchHit hit) {
+        return new VideoResponse(
+                hit.getId(),
+                hit.getTitle(),
+                hit.getDescription(),
+                Boolean.TRUE.equals(hit.getIsPrivate()),
+                hit.getUploaderUsername(),
+                OffsetDateTime.ofInstant(hit.getCreatedAt(), ZoneOffset.UTC),
+                (hit.getProcessingStatus() == null) ? ProcessingStatus.READY : ProcessingStatus.valueOf(hit.getProcessingStatus())
+        );
+    }
+
+    static VideoResponse toResponse(Video v, String uploaderUsername) {
         return new VideoResponse(
                 v.getId(),
                 v.getTitle(),
                 v.getDescription(),
                 v.isPrivate(),
-                v.getUploader().getUsername(),
-                v.getCreatedAt()
+                uploaderUsername,
+                v.getCreatedAt(),
+                v.getProcessingStatus()
         );
     }
 
-    public List<VideoResponse> list(String search) {
+    public VideoPage list(String search, String cursor, Integer limit) {
+        Long userId = currentUserIdOrNull();
+        int size = (limit == null) ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // one extra row tells us whether another page exists without a count query
+        Pageable page = PageRequest.of(0, size + 1);
+        Cursor after = (cursor == null || cursor.isBlank()) ? null : Cursor.decode(cursor);
+
+        if (search != null && !search.isBlank()) {
+            return search(search, userId, after, size, page);
+        }
+
+        List<VideoResponse> videos = (after == null)
+                ? videoRepository.findVisibleVideos(userId, page)
+                : videoRepository.findVisibleVideosAfter(userId, after.createdAt(), after.id(), page);
+
+        String nextCursor = null;
+        if (videos.size() > size) {
+            videos = videos.subList(0, size);
+            VideoResponse last = videos.get(size - 1);
+            nextCursor = new Cursor(last.createdAt(), last.id(), null).encode();
+        }
+        return new VideoPage(videos, nextCursor);
+    }
+
+    /**
+     * Hands every video visible to the caller to {@code sink}, newest first. Rows are read in keyset
+     * pages of {@value #STREAM_PAGE_SIZE}, each in its own short query, so a slow client holds one page
+     * in memory and no pooled connection while it drains it. Videos published after the stream started
+     * are newer than its first row and are not included.
+     */
+    public void streamFeed(Consumer<VideoResponse> sink) {
         Long userId = currentUserIdOrNull();
+        Pageable page = PageRequest.of(0, STREAM_PAGE_SIZE);
+        List<VideoResponse> videos = videoRepository.findVisibleVideos(userId, page);
+        while (!videos.isEmpty()) {
+            videos.forEach(sink);
+            if (videos.size() < STREAM_PAGE_SIZE) {
+                return;
+            }
+            VideoResponse last = videos.get(videos.size() - 1);
+            videos = videoRepository.findVisibleVideosAfter(userId, last.createdAt(), last.id(), page);
+        }
+    }
 
-        List<Video> videos = (search == null || search.trim().isEmpty())
-                ? videoRepository.findVisibleVideos(userId)
-                : videoRepository.searchVisibleVideos(search.trim(), userId);
+    private VideoPage search(String search, Long userId, Cursor after, int size, Pageable page) {
+        String tsquery = toPrefixQuery(search);
+        if (tsquery.isEmpty()) {
+            return new VideoPage(List.of(), null);
+        }
+        if (after != null && after.rank() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
 
-        return videos.stream().map(this::toResponse).toList();
+        List<VideoSearchHit> hits = (after == null)
+                ? videoRepository.searchVisibleVideos(tsquery, userId, page)
+                : videoRepository.searchVisibleVideosAfter(tsquery, userId, after.rank(), after.createdAt(), after.id(), page);
+
+        String nextCursor = null;
+        if (hits.size() > size) {
+            hits = hits.subList(0, size);
+            VideoSearchHit last = hits.get(size - 1);
+            nextCursor = new Cursor(OffsetDateTime.ofInstant(last.getCreatedAt(), ZoneOffset.UTC), last.getId(), last.getRank()).encode();
+        }
+        return new VideoPage(hits.stream().map(this::toResponse).toList(), nextCursor);
+    }
+
+    // every word becomes a prefix term so partial words still match while typing
+    private String toPrefixQuery(String search) {
+        return Arrays.stream(search.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .limit(MAX_SEARCH_TERMS)
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    /**
+     * Weak validator for the caller's feed, cheap enough to check before running the page query:
+     * the videos table's change counter and the newest visible row, each read from a single index
+     * or row. It is per caller because private videos make the visible set differ between users.
+     */
+    public String feedEtag() {
+        Long userId = currentUserIdOrNull();
+        FeedStats stats = videoRepository.feedStats(userId);
+        long version = (stats.getVersion() == null) ? 0 : stats.getVersion();
+        long newest = (stats.getNewest() == null) ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, stats.getNewest());
+
+        return "W/\"" + (userId == null ? "anon" : "u" + userId) + "-" + Long.toHexString(version)
+                + "-" + Long.toHexString(newest) + "\"";
+    }
+
+    public List<VideoSuggestion> suggest(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        int size = (limit == null) ? DEFAULT_SUGGESTIONS : Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return titleSuggestIndex.suggest(query, size);
     }
 
     public VideoResponse getOne(Long id) {
-        Video video = videoRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
-        enforcePrivacy(video);
-        return toResponse(video);
+        return videoRepository.findVisibleResponse(id, currentUserIdOrNull())
+                .orElseThrow(() -> videoRepository.existsById(id)
+                        ? new ResponseStatusException(HttpStatus.FORBIDDEN, "Private video access denied")
+                        : new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
     }
 
     public VideoResponse upload(MultipartFile file, String title, String description, boolean isPrivate) {
-        User uploader = requireCurrentUser();
+        AuthenticatedUser uploader = requireCurrentUser();
 
         if (file == null || file.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File is required");
         }
 
+        String trimmedTitle = validateMetadata(title, description);
+
+        StorageService.StoredFile storedVideo = storageService.store(file);
+        return publish(uploader, storedVideo, trimmedTitle, description, isPrivate);
+    }
+
+    String validateMetadata(String title, String description) {
         if (title == null || title.trim().isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Title is required");
         }
@@ -111,99 +328,279 @@ public class VideoService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Description must be at most 500 characters");
         }
 
-        StorageService.StoredFile storedVideo = storageService.store(file);
+        return trimmedTitle;
+    }
 
+    VideoResponse publish(AuthenticatedUser uploader,
+                          StorageService.StoredFile storedVideo,
+                          String title,
+                          String description,
+                          boolean isPrivate) {
         RawFile videoRaw = new RawFile();
         videoRaw.setOriginalFilename(storedVideo.originalFilename());
         videoRaw.setStoredFilename(storedVideo.storedFilename());
         videoRaw.setContentType(storedVideo.contentType());
         videoRaw.setSizeBytes(storedVideo.sizeBytes());
         videoRaw.setFilePath(storedVideo.filePath());
+        videoRaw.setSha256(storedVideo.sha256());
+        videoRaw.setVolume(storedVideo.volume());
 
         Video video = new Video();
-        video.setTitle(trimmedTitle);
+        video.setTitle(title);
         video.setDescription(description);
         video.setPrivate(isPrivate);
-        video.setUploader(uploader);
+        video.setUploader(userRepository.getReferenceById(uploader.id()));
         video.setVideoFile(videoRaw);
 
-        RawFile thumb = tryGenerateThumbnail(videoRaw);
-        video.setThumbnailFile(thumb);
+        Video saved;
+        try {
+            // a duplicate of an earlier upload reuses that upload's thumbnail instead of running ffmpeg
+            RawFile thumb = contentBlobService.sharedThumbnail(storedVideo).orElse(null);
+            video.setThumbnailFile(thumb);
+            video.setProcessingStatus(thumb == null || hlsPackager.isEnabled() ? ProcessingStatus.PENDING : ProcessingStatus.READY);
+
+            saved = transactionTemplate.execute(tx -> {
+                contentBlobService.acquire(storedVideo, thumb);
+                return videoRepository.save(video);
+            });
+        } catch (RuntimeException e) {
+            discard(storedVideo);
+            throw e;
+        }
+
+        if (!saved.isPrivate()) {
+            titleSuggestIndex.add(saved.getId(), saved.getTitle());
+        }
+        if (saved.getProcessingStatus() == ProcessingStatus.PENDING) {
+            mediaProcessingService.enqueue(saved.getId());
+        }
+        return toResponse(saved, uploader.username());
+    }
+
+    // no row refers to the file now; a content-addressed blob is left alone, because an identical
+    // upload that has stored it but not yet taken its ref count would be left pointing at nothing
+    private void discard(StorageService.StoredFile stored) {
+        if (contentBlobService.isShared(stored)) {
+            log.info("Leaving shared blob {} after its video failed to save", stored.storedFilename());
+            return;
+        }
+        try {
+            storageService.delete(stored.volume(), stored.storedFilename());
+        } catch (RuntimeException e) {
+            log.warn("Could not remove {} after its video failed to save", stored.storedFilename(), e);
+        }
+    }
+
+    public MediaUrlsResponse mediaUrls(Long id) {
+        Video video = videoRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
+        enforcePrivacy(video);
+
+        String base = "/api/videos/" + id;
+        String query = "";
+        OffsetDateTime expiresAt = null;
+        // public media keeps stable, unsigned URLs so every viewer shares one cache entry
+        if (video.isPrivate()) {
+            MediaUrlSigner.Signature signature = mediaUrlSigner.sign(id, currentUserIdOrNull());
+            query = "?" + signature.toQuery();
+            expiresAt = OffsetDateTime.ofInstant(Instant.ofEpochSecond(signature.expires()), ZoneOffset.UTC);
+        }
+
+        return new MediaUrlsResponse(
+                base + "/download" + query,
+                (video.getThumbnailFile() == null) ? null : base + "/thumbnail" + query,
+                expiresAt);
+    }
+
+    public FileDownload downloadVideo(Long id, MediaUrlSigner.Signature signature) {
+        Video video = videoRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
+        enforcePrivacy(video, signature);
+
+        return toDownload(video.getVideoFile(), video.isPrivate());
+    }
+
+    public FileDownload downloadThumbnail(Long id, MediaUrlSigner.Signature signature) {
+        ThumbnailCache.Thumbnail t = thumbnailCache.get(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Thumbnail not found"));
+        enforcePrivacy(id, t.isPrivate(), t.uploaderId(), signature);
+
+        Supplier<Resource> content = (t.bytes() != null)
+                ? () -> new ByteArrayResource(t.bytes())
+                : () -> storageService.loadAsResource(t.volume(), t.storedFilename());
+        return new FileDownload(content, t.contentType(), t.filename(), t.isPrivate(), t.etag(), t.lastModified());
+    }
+
+    /**
+     * The thumbnails among {@code ids} that the caller may see, in request order. Ids already in
+     * the thumbnail cache are answered from memory; the rest are authorized and resolved together
+     * in a single query. Videos without a thumbnail, or not visible to the caller, are left out.
+     * No file is opened here, so a batch answered with 304 never touches storage.
+     */
+    public List<ThumbnailPart> thumbnails(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > MAX_THUMBNAIL_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_THUMBNAIL_BATCH + " thumbnails per request");
+        }
+
+        Long userId = currentUserIdOrNull();
+        Map<Long, ThumbnailPart> parts = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+
+        for (Long id : unique) {
+            ThumbnailCache.Thumbnail t = thumbnailCache.getIfPresent(id).orElse(null);
+            if (t == null) {
+                misses.add(id);
+            } else if (!t.isPrivate() || t.uploaderId().equals(userId)) {
+                Supplier<Resource> content = (t.bytes() != null)
+                        ? () -> new ByteArrayResource(t.bytes())
+                        : () -> loadOrNull(t.volume(), t.storedFilename());
+                parts.put(id, new ThumbnailPart(id, content, t.contentType(), t.etag(), t.isPrivate()));
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            for (ThumbnailRow row : videoRepository.findVisibleThumbnails(misses, userId)) {
+                parts.put(row.videoId(), new ThumbnailPart(row.videoId(),
+                        () -> loadOrNull(row.volume(), row.storedFilename()), row.contentType(),
+                        etag(row.fileId(), row.sizeBytes(), row.createdAt()), row.isPrivate()));
+            }
+        }
 
-        Video saved = videoRepository.save(video);
-        return toResponse(saved);
+        return unique.stream().map(parts::get).filter(Objects::nonNull).toList();
     }
 
-    public FileDownload downloadVideo(Long id) {
+    // one unreadable file must not fail the whole batch
+    private Resource loadOrNull(String volume, String storedFilename) {
+        try {
+            return storageService.loadAsResource(volume, storedFilename);
+        } catch (StorageFileNotFoundException e) {
+            return null;
+        }
+    }
+
+    public HlsPlaylist hlsMaster(Long id) {
         Video video = videoRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
         enforcePrivacy(video);
 
-        RawFile rf = video.getVideoFile();
-        Resource resource = storageService.loadAsResource(rf.getStoredFilename());
+        List<VideoRendition> renditions = videoRenditionRepository.findByVideoIdOrderByBandwidthAsc(id);
+        if (renditions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No HLS renditions for this video");
+        }
 
-        return new FileDownload(resource, rf.getContentType(), rf.getOriginalFilename());
+        StringBuilder m3u8 = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:7\n");
+        for (VideoRendition r : renditions) {
+            // players pick a variant by RESOLUTION and skip ones whose CODECS they cannot decode
+            m3u8.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(r.getBandwidth());
+            if (r.getWidth() != null) {
+                m3u8.append(",RESOLUTION=").append(r.getWidth()).append('x').append(r.getHeight());
+            }
+            if (r.getCodecs() != null) {
+                m3u8.append(",CODECS=\"").append(r.getCodecs()).append('"');
+            }
+            m3u8.append('\n').append(r.getName()).append('/').append(r.getPlaylistFilename()).append('\n');
+        }
+        return new HlsPlaylist(m3u8.toString(), video.isPrivate());
     }
 
-    public FileDownload downloadThumbnail(Long id) {
+    public FileDownload downloadHlsFile(Long id, String rendition, String filename) {
         Video video = videoRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
         enforcePrivacy(video);
 
-        if (video.getThumbnailFile() == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Thumbnail not found");
+        if (!HLS_FILENAME.matcher(filename).matches()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Segment not found");
         }
+        VideoRendition r = videoRenditionRepository.findByVideoIdAndName(id, rendition)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Rendition not found"));
 
-        RawFile rf = video.getThumbnailFile();
-        Resource resource = storageService.loadAsResource(rf.getStoredFilename());
+        String volume = r.getVolume();
+        String storedFilename = r.getStoragePrefix() + filename;
+        return new FileDownload(() -> storageService.loadAsResource(volume, storedFilename),
+                HlsPackager.contentType(filename), filename, video.isPrivate(), null, -1);
+    }
 
-        return new FileDownload(resource, rf.getContentType(), rf.getOriginalFilename());
+    // stored files never change, so the row's identity, size and creation time make a strong validator
+    private FileDownload toDownload(RawFile rf, boolean isPrivate) {
+        String volume = rf.getVolume();
+        String storedFilename = rf.getStoredFilename();
+        return new FileDownload(() -> storageService.loadAsResource(volume, storedFilename),
+                rf.getContentType(), rf.getOriginalFilename(), isPrivate, etag(rf), lastModified(rf));
     }
 
-    public record FileDownload(Resource resource, String contentType, String downloadFilename) {}
+    static String etag(RawFile rf) {
+        return etag(rf.getId(), rf.getSizeBytes(), rf.getCreatedAt());
+    }
+
+    static String etag(Long fileId, long sizeBytes, LocalDateTime createdAt) {
+        return "\"" + fileId + "-" + Long.toHexString(sizeBytes) + "-" + Long.toHexString(lastModified(createdAt)) + "\"";
+    }
 
-    private RawFile tryGenerateThumbnail(RawFile videoRaw) {
-    try {
-        Path videoPath = Path.of(videoRaw.getFilePath());
-        Path dir = videoPath.getParent();
+    static long lastModified(RawFile rf) {
+        return lastModified(rf.getCreatedAt());
+    }
+
+    private static long lastModified(LocalDateTime createdAt) {
+        return createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 
-        String thumbStored = "thumb-" + videoRaw.getStoredFilename() + ".jpg";
-        Path thumbPath = dir.resolve(thumbStored);
+    // rank is only present on search cursors, whose pages are ordered by relevance first
+    record Cursor(OffsetDateTime createdAt, Long id, Float rank) {
 
-        Process p = new ProcessBuilder(
-                "ffmpeg",
-                "-y",
-                "-ss", "00:00:01",
-                "-i", videoPath.toString(),
-                "-frames:v", "1",
-                thumbPath.toString()
-        ).redirectErrorStream(true).start();
+        String encode() {
+            String raw = createdAt.toInstant() + "," + id + (rank == null ? "" : "," + rank);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
 
-        int code = p.waitFor();
-        if (code != 0 || !thumbPath.toFile().exists()) {
-            throw new ResponseStatusException(
-                    HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Thumbnail generation failed (ffmpeg exit code " + code + ")"
-            );
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+                if (parts.length < 2 || parts.length > 3) {
+                    throw new IllegalArgumentException(cursor);
+                }
+                return new Cursor(
+                        OffsetDateTime.ofInstant(Instant.parse(parts[0]), ZoneOffset.UTC),
+                        Long.parseLong(parts[1]),
+                        (parts.length == 3) ? Float.valueOf(parts[2]) : null);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
         }
+    }
 
-        File f = thumbPath.toFile();
+    /**
+     * A stored file the caller may read, with validators taken from its row. The file itself is
+     * only opened by {@link #open()}, after a conditional request has been checked against them;
+     * whoever opens it passes the resource to {@link StorageService#release} when done.
+     */
+    public record FileDownload(Supplier<Resource> content,
+                               String contentType,
+                               String downloadFilename,
+                               boolean isPrivate,
+                               String etag,
+                               long lastModified) {
+
+        public Resource open() {
+            return content.get();
+        }
+    }
 
-        RawFile thumb = new RawFile();
-        thumb.setOriginalFilename("thumbnail.jpg");
-        thumb.setStoredFilename(thumbStored);
-        thumb.setContentType("image/jpeg");
-        thumb.setSizeBytes(f.length());
-        thumb.setFilePath(thumbPath.toString());
+    public record HlsPlaylist(String body, boolean isPrivate) {}
 
-        return thumb;
+    // open() returns null when the file has gone missing, so the part can be left out
+    public record ThumbnailPart(Long videoId,
+                                Supplier<Resource> content,
+                                String contentType,
+                                String etag,
+                                boolean isPrivate) {
 
-    } catch (Exception e) {
-        throw new ResponseStatusException(
-                HttpStatus.INTERNAL_SERVER_ERROR,
-                "Thumbnail generation failed",
-                e
-        );
+        public Resource open() {
+            return content.get();
+        }
     }
 }
-}
\ No newline at end of file
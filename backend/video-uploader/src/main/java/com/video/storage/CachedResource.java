@@ -0,0 +1,62 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * A backend file that is not (yet) fully in the local cache. Reads are served from cached blocks
+ * where present and fill in the missing ones from the backend as they go.
+ */
+class CachedResource extends AbstractResource implements RangeReadable {
+
+    private final TieredStorageService tier;
+    private final TieredStorageService.Entry entry;
+    private final Resource source;
+
+    CachedResource(TieredStorageService tier, TieredStorageService.Entry entry, Resource source) {
+        this.tier = tier;
+        this.entry = entry;
+        this.source = source;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return entry.size;
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return source.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return source.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return "cached " + source.getDescription();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return getInputStream(0, entry.size);
+    }
+
+    @Override
+    public InputStream getInputStream(long position, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        return tier.open(entry, source, position, length);
+    }
+}
@@ -3,40 +3,96 @@ package com.video.storage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Stores files on one or more local volumes: {@code storage.location} is the primary volume and
+ * {@code storage.volumes.<name>} adds more. Each new file goes to the volume with the most free
+ * space per write in progress, keeping at least {@code storage.min-free-space} free where possible,
+ * and is named under {@link StorageLayout}'s hash-prefix directories.
+ */
 @Service
-public class FileSystemStorageService implements StorageService {
+@Qualifier(StorageService.BACKEND)
+@ConditionalOnProperty(name = "storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemStorageService implements StorageService, MeterBinder {
 
-    private final Path rootLocation;
+    private final Map<String, Volume> volumes = new LinkedHashMap<>();
+    private final Volume primary;
+    private final boolean contentAddressed;
+    private final long minFreeBytes;
+    // the volume holding each upload's staging file, so every chunk of an upload lands on the same disk
+    private final Map<String, Volume> stagingVolumes = new ConcurrentHashMap<>();
 
     @Autowired
     public FileSystemStorageService(StorageProperties properties) {
         if (properties.getLocation() == null || properties.getLocation().trim().isEmpty()) {
             throw new StorageException("Storage location must not be empty");
         }
-        this.rootLocation = Paths.get(properties.getLocation()).toAbsolutePath().normalize();
+        this.primary = new Volume(PRIMARY_VOLUME, Paths.get(properties.getLocation()));
+        volumes.put(PRIMARY_VOLUME, primary);
+
+        properties.getVolumes().forEach((name, location) -> {
+            if (PRIMARY_VOLUME.equals(name) || location == null || location.trim().isEmpty()) {
+                throw new StorageException("Invalid storage volume: " + name);
+            }
+            volumes.put(name, new Volume(name, Paths.get(location)));
+        });
+
+        this.contentAddressed = properties.isContentAddressed();
+        this.minFreeBytes = properties.getMinFreeSpace().toBytes();
     }
 
     @Override
     public void init() {
         try {
-            Files.createDirectories(rootLocation);
+            for (Volume volume : volumes.values()) {
+                Files.createDirectories(volume.root);
+                Files.createDirectories(volume.uploads);
+            }
         } catch (IOException e) {
             throw new StorageException("Could not initialize storage", e);
         }
     }
 
+    // Actuator only reports the working directory's disk, so each volume reports its own
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Volume volume : volumes.values()) {
+            Gauge.builder("video.storage.disk.free", volume, Volume::usableSpace)
+                    .description("Usable space on the storage volume's file store")
+                    .baseUnit("bytes")
+                    .tag("volume", volume.name)
+                    .tag("path", volume.root.toString())
+                    .register(registry);
+            Gauge.builder("video.storage.active.writes", volume.activeWrites, AtomicInteger::get)
+                    .description("Writes in progress per storage volume")
+                    .tag("volume", volume.name)
+                    .register(registry);
+        }
+    }
+
     @Override
     public StoredFile store(MultipartFile file) {
         try {
@@ -44,56 +100,364 @@ public class FileSystemStorageService implements StorageService {
                 throw new StorageException("The file is empty");
             }
 
-            String original = (file.getOriginalFilename() == null) ? "file" : file.getOriginalFilename();
-            original = original.replaceAll("[\\\\/]", "_");
+            String original = LocalFiles.sanitizeFilename(file.getOriginalFilename());
+            String stored = StorageLayout.sharded(UUID.randomUUID() + "-" + original);
+            Volume volume = select();
+            Path destinationFile = resolveDestination(volume, stored);
+            Files.createDirectories(destinationFile.getParent());
+
+            LocalFiles.Checksum checksum;
+            volume.activeWrites.incrementAndGet();
+            try {
+                // the container has already spooled the part to disk, on the primary volume (see
+                // MultipartSpoolConfig): there it is renamed into place, elsewhere copied and hashed in one pass
+                checksum = LocalFiles.receive(file, destinationFile, volume == primary);
+            } finally {
+                volume.activeWrites.decrementAndGet();
+            }
+
+            if (file.getSize() >= 0 && checksum.sizeBytes() != file.getSize()) {
+                Files.deleteIfExists(destinationFile);
+                throw new StorageException("Stored file size does not match upload");
+            }
+
+            String contentType = (file.getContentType() == null) ? "application/octet-stream" : file.getContentType();
 
-            String stored = UUID.randomUUID() + "-" + original;
+            return stored(volume, original, stored, contentType, destinationFile, checksum);
 
-            Path destinationFile = rootLocation.resolve(stored).normalize().toAbsolutePath();
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        }
+    }
 
-            // security check: must remain inside rootLocation
-            if (!destinationFile.startsWith(rootLocation)) {
-                throw new StorageException("Cannot store file outside current directory");
+    @Override
+    public Resource loadAsResource(String volumeName, String storedFilename) {
+        Volume volume = volume(volumeName);
+        Resource resource = readable(resolve(volume, storedFilename));
+        if (resource == null) {
+            // a file in the legacy layout may have been moved since its name was read
+            String migrated = StorageLayout.migrated(storedFilename);
+            if (migrated != null) {
+                resource = readable(resolve(volume, migrated));
             }
+        }
+        if (resource == null) {
+            throw new StorageFileNotFoundException("Could not read file: " + storedFilename);
+        }
+        return resource;
+    }
+
+    @Override
+    public String mediaInput(String volumeName, String storedFilename) {
+        Volume volume = volume(volumeName);
+        Path file = resolve(volume, storedFilename);
+        String migrated = StorageLayout.migrated(storedFilename);
+        if (!Files.exists(file) && migrated != null) {
+            file = resolve(volume, migrated);
+        }
+        return file.toString();
+    }
+
+    @Override
+    public String locate(String volumeName, String storedFilename) {
+        return resolve(volume(volumeName), storedFilename).toString();
+    }
+
+    public Path resolve(String volumeName, String storedFilename) {
+        return resolve(volume(volumeName), storedFilename);
+    }
+
+    /**
+     * Moves a file or directory stored under a legacy name to its {@link StorageLayout} name and
+     * returns the new name. It is a rename within one volume, so readers see either the old or the
+     * new path, and running it again after an interruption just returns the new name.
+     */
+    public String relocate(String volumeName, String legacyName) {
+        String target = StorageLayout.migrated(legacyName);
+        if (target == null) {
+            return legacyName;
+        }
+        Volume volume = volume(volumeName);
+        Path from = resolveDestination(volume, legacyName);
+        Path to = resolveDestination(volume, target);
 
-            try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            if (Files.exists(from)) {
+                Files.createDirectories(to.getParent());
+                Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+                deleteIfEmpty(volume, from.getParent());
+            } else if (!Files.exists(to)) {
+                throw new StorageFileNotFoundException("Could not find file: " + legacyName);
             }
+            return target;
+        } catch (IOException e) {
+            throw new StorageException("Failed to relocate " + legacyName, e);
+        }
+    }
 
-            String contentType = (file.getContentType() == null) ? "application/octet-stream" : file.getContentType();
+    @Override
+    public void beginUpload(String uploadId) {
+        validateUploadId(uploadId);
+        Volume volume = select();
+        try {
+            Files.createDirectories(volume.uploads);
+            Files.createFile(volume.uploads.resolve(uploadId + ".part"));
+            stagingVolumes.put(uploadId, volume);
+        } catch (IOException e) {
+            throw new StorageException("Failed to create upload", e);
+        }
+    }
+
+    @Override
+    public long writeChunk(String uploadId, long position, InputStream data, long length) {
+        Volume volume = findStaging(uploadId);
+        if (volume == null) {
+            throw new StorageFileNotFoundException("Upload has no data: " + uploadId);
+        }
+        Path staging = volume.uploads.resolve(uploadId + ".part");
+        volume.activeWrites.incrementAndGet();
+        try {
+            return LocalFiles.writeAt(staging, position, data, length);
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("Upload has no data: " + uploadId, e);
+        } catch (IOException e) {
+            throw new StorageException("Failed to write upload chunk", e);
+        } finally {
+            volume.activeWrites.decrementAndGet();
+        }
+    }
+
+    @Override
+    public StoredFile storeUpload(String uploadId, String originalFilename, String contentType) {
+        Volume volume = findStaging(uploadId);
+        if (volume == null) {
+            throw new StorageFileNotFoundException("Upload has no data: " + uploadId);
+        }
+        Path staging = volume.uploads.resolve(uploadId + ".part");
+
+        String original = LocalFiles.sanitizeFilename(originalFilename);
+        String stored = StorageLayout.sharded(UUID.randomUUID() + "-" + original);
+        Path destinationFile = resolveDestination(volume, stored);
+
+        try {
+            Files.createDirectories(destinationFile.getParent());
+            // staged on the destination volume, so this is a rename rather than a copy
+            Files.move(staging, destinationFile, StandardCopyOption.ATOMIC_MOVE);
+            stagingVolumes.remove(uploadId);
+            // chunks arrive out of order, so the file can only be hashed once it is whole
+            LocalFiles.Checksum checksum = LocalFiles.checksum(destinationFile);
+
+            return stored(volume, original, stored,
+                    (contentType == null) ? "application/octet-stream" : contentType,
+                    destinationFile, checksum);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store upload", e);
+        }
+    }
+
+    @Override
+    public void deleteUpload(String uploadId) {
+        Volume volume = findStaging(uploadId);
+        stagingVolumes.remove(uploadId);
+        if (volume == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(volume.uploads.resolve(uploadId + ".part"));
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete upload", e);
+        }
+    }
+
+    @Override
+    public StoredFile storeDerived(Path source, String volumeName, String storedFilename, String contentType) {
+        Volume volume = (volumeName == null) ? select() : volume(volumeName);
+        Path destinationFile = resolveDestination(volume, storedFilename);
+        // staged beside the target, so concurrent writers of one content-addressed name each replace it atomically
+        Path partial = destinationFile.resolveSibling(destinationFile.getFileName() + "." + System.nanoTime() + ".tmp");
+        volume.activeWrites.incrementAndGet();
+        try {
+            Files.createDirectories(destinationFile.getParent());
+            Files.move(source, partial);
+            Files.move(partial, destinationFile, StandardCopyOption.ATOMIC_MOVE);
 
             return new StoredFile(
-                    original,
-                    stored,
+                    destinationFile.getFileName().toString(),
+                    storedFilename,
                     contentType,
-                    file.getSize(),
-                    destinationFile.toString()
+                    Files.size(destinationFile),
+                    destinationFile.toString(),
+                    null,
+                    volume.name
             );
-
         } catch (IOException e) {
-            throw new StorageException("Failed to store file", e);
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+            }
+            throw new StorageException("Failed to store derived file " + storedFilename, e);
+        } finally {
+            volume.activeWrites.decrementAndGet();
         }
     }
 
     @Override
-    public Resource loadAsResource(String storedFilename) {
+    public void delete(String volumeName, String storedFilename) {
         try {
-            Path file = rootLocation.resolve(storedFilename).normalize().toAbsolutePath();
+            Files.deleteIfExists(resolve(volume(volumeName), storedFilename));
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete " + storedFilename, e);
+        }
+    }
+
+    private StoredFile stored(Volume volume, String original, String stored, String contentType, Path file, LocalFiles.Checksum checksum)
+            throws IOException {
+        if (!contentAddressed) {
+            return new StoredFile(original, stored, contentType, checksum.sizeBytes(), file.toString(), checksum.sha256(), volume.name);
+        }
 
-            // security check
-            if (!file.startsWith(rootLocation)) {
-                throw new StorageException("Cannot read file outside current directory.");
+        // blobs are named by their digest, so a duplicate upload finds its bytes already in place
+        String blobName = "cas/" + checksum.sha256().substring(0, 2) + "/" + checksum.sha256();
+
+        // the bytes may already be on another volume; the new copy is dropped in favour of them
+        for (Volume other : volumes.values()) {
+            Path existing = resolveDestination(other, blobName);
+            if (other != volume && Files.exists(existing)) {
+                Files.delete(file);
+                return new StoredFile(original, blobName, contentType, checksum.sizeBytes(), existing.toString(), checksum.sha256(), other.name);
             }
+        }
 
-            Resource resource = new UrlResource(file.toUri());
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
+        Path blob = resolveDestination(volume, blobName);
+        Files.createDirectories(blob.getParent());
+
+        if (Files.exists(blob)) {
+            Files.delete(file);
+        } else {
+            // rename(2) replaces atomically, so two identical uploads racing here both end up with the same bytes
+            Files.move(file, blob, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        return new StoredFile(original, blobName, contentType, checksum.sizeBytes(), blob.toString(), checksum.sha256(), volume.name);
+    }
+
+    // most free space per write already in progress, preferring volumes above the free-space floor
+    private Volume select() {
+        if (volumes.size() == 1) {
+            return primary;
+        }
+
+        Volume best = null;
+        boolean bestHasRoom = false;
+        double bestScore = -1;
+        for (Volume volume : volumes.values()) {
+            long free = volume.usableSpace();
+            boolean hasRoom = free >= minFreeBytes;
+            double score = free / (1.0 + volume.activeWrites.get());
+            if (best == null || (hasRoom && !bestHasRoom) || (hasRoom == bestHasRoom && score > bestScore)) {
+                best = volume;
+                bestHasRoom = hasRoom;
+                bestScore = score;
             }
+        }
+        return best;
+    }
 
-            throw new StorageFileNotFoundException("Could not read file: " + storedFilename);
+    private Volume volume(String name) {
+        if (name == null) {
+            return primary;
+        }
+        Volume volume = volumes.get(name);
+        if (volume == null) {
+            throw new StorageException("Unknown storage volume: " + name);
+        }
+        return volume;
+    }
 
+    // after a restart the map is empty, so the staging file is looked for on every volume
+    private Volume findStaging(String uploadId) {
+        validateUploadId(uploadId);
+        Volume volume = stagingVolumes.get(uploadId);
+        if (volume != null) {
+            return volume;
+        }
+        for (Volume candidate : volumes.values()) {
+            if (Files.exists(candidate.uploads.resolve(uploadId + ".part"))) {
+                Volume previous = stagingVolumes.putIfAbsent(uploadId, candidate);
+                return (previous != null) ? previous : candidate;
+            }
+        }
+        return null;
+    }
+
+    private Resource readable(Path file) {
+        try {
+            Resource resource = new UrlResource(file.toUri());
+            return (resource.exists() && resource.isReadable()) ? resource : null;
         } catch (MalformedURLException e) {
-            throw new StorageFileNotFoundException("Could not read file: " + storedFilename, e);
+            return null;
+        }
+    }
+
+    private void deleteIfEmpty(Volume volume, Path dir) throws IOException {
+        if (dir.equals(volume.root)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(dir);
+        } catch (DirectoryNotEmptyException e) {
+            // other renditions of the same video are still to be moved
+        }
+    }
+
+    private Path resolve(Volume volume, String stored) {
+        Path file = volume.root.resolve(stored).normalize().toAbsolutePath();
+
+        // security check
+        if (!file.startsWith(volume.root)) {
+            throw new StorageException("Cannot read file outside current directory.");
+        }
+        return file;
+    }
+
+    private Path resolveDestination(Volume volume, String stored) {
+        Path destinationFile = volume.root.resolve(stored).normalize().toAbsolutePath();
+
+        // security check: must remain inside the volume root
+        if (!destinationFile.startsWith(volume.root)) {
+            throw new StorageException("Cannot store file outside current directory");
+        }
+        return destinationFile;
+    }
+
+    private void validateUploadId(String uploadId) {
+        try {
+            if (!UUID.fromString(uploadId).toString().equals(uploadId)) {
+                throw new StorageException("Invalid upload id");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new StorageException("Invalid upload id");
+        }
+    }
+
+    private static final class Volume {
+        private final String name;
+        private final Path root;
+        private final Path uploads;
+        private final AtomicInteger activeWrites = new AtomicInteger();
+
+        Volume(String name, Path location) {
+            this.name = name;
+            this.root = location.toAbsolutePath().normalize();
+            this.uploads = root.resolve(".uploads");
+        }
+
+        long usableSpace() {
+            try {
+                return Files.getFileStore(root).getUsableSpace();
+            } catch (IOException e) {
+                return 0;
+            }
         }
     }
 }
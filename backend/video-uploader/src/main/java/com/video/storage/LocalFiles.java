@@ -0,0 +1,133 @@
+package com.video.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Local-file steps shared by the storage backends: staging chunks, hashing and sending parts of
+ * a spooled file.
+ */
+final class LocalFiles {
+
+    private LocalFiles() {
+    }
+
+    static long writeAt(Path file, long position, InputStream data, long length) throws IOException {
+        // positional writes leave the channel position alone, so chunks may land in any order; the file
+        // must exist, so a chunk for an upload that was completed or removed fails instead of recreating it
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = Channels.newChannel(data);
+            long written = 0;
+            while (written < length) {
+                long n = channel.transferFrom(source, position + written, length - written);
+                if (n <= 0) {
+                    break;
+                }
+                written += n;
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Puts a spooled multipart part at {@code target} and returns its digest and size. A part that
+     * can be renamed into place ({@code rename}, when the spool shares the target's file system) is
+     * moved without copying a byte, so the one read that hashes it is the only pass over the data.
+     * Otherwise the copy is hashed on its way through and the file is never read back.
+     */
+    static Checksum receive(MultipartFile file, Path target, boolean rename) throws IOException {
+        if (rename) {
+            file.transferTo(target.toFile());
+            return checksum(target);
+        }
+        MessageDigest digest = sha256Digest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            long size = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            return new Checksum(HexFormat.of().formatHex(digest.digest()), size);
+        }
+    }
+
+    static Checksum checksum(Path file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int n;
+            while ((n = channel.read(buffer)) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+                size += n;
+            }
+        }
+        return new Checksum(HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    /** A stream over {@code length} bytes of {@code file} starting at {@code offset}. */
+    static InputStream slice(Path file, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(offset);
+        return limit(Channels.newInputStream(channel), length);
+    }
+
+    /** The first {@code length} bytes of {@code in}; closing the result closes {@code in}. */
+    static InputStream limit(InputStream in, long length) {
+        return new FilterInputStream(in) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = super.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+        };
+    }
+
+    static String sanitizeFilename(String filename) {
+        String original = (filename == null) ? "file" : filename;
+        return original.replaceAll("[\\\\/]", "_");
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageException("SHA-256 is not available", e);
+        }
+    }
+
+    record Checksum(String sha256, long sizeBytes) {}
+}
@@ -0,0 +1,157 @@
+package com.video.storage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records how long storage operations take and how many bytes they move, then delegates to the
+ * actual backend. Writes are tagged by kind ({@code upload}, {@code assemble}, {@code derived},
+ * {@code chunk}) and outcome, so slow disks show up separately from slow clients. With
+ * {@code storage.cache.enabled=true} the local cache tier sits between this and the backend.
+ */
+@Service
+@Primary
+public class MeteredStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final MeterRegistry registry;
+
+    public MeteredStorageService(@Qualifier(BACKEND) StorageService backend,
+                                 ObjectProvider<TieredStorageService> tier,
+                                 MeterRegistry registry) {
+        TieredStorageService cached = tier.getIfAvailable();
+        this.delegate = (cached != null) ? cached : backend;
+        this.registry = registry;
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public StoredFile store(MultipartFile file) {
+        return timedWrite("upload", () -> delegate.store(file));
+    }
+
+    @Override
+    public Resource loadAsResource(String volume, String filename) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            Resource resource = delegate.loadAsResource(volume, filename);
+            outcome = "success";
+            return resource;
+        } catch (StorageFileNotFoundException e) {
+            outcome = "not_found";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("video.storage.load")
+                    .description("Time to resolve a stored file for reading")
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    @Override
+    public void beginUpload(String uploadId) {
+        delegate.beginUpload(uploadId);
+    }
+
+    @Override
+    public long writeChunk(String uploadId, long position, InputStream data, long length) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            long written = delegate.writeChunk(uploadId, position, data, length);
+            outcome = "success";
+            recordBytes("chunk", written, System.nanoTime() - start);
+            return written;
+        } finally {
+            writeTimer("chunk", outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public StoredFile storeUpload(String uploadId, String originalFilename, String contentType) {
+        return timedWrite("assemble", () -> delegate.storeUpload(uploadId, originalFilename, contentType));
+    }
+
+    @Override
+    public void deleteUpload(String uploadId) {
+        delegate.deleteUpload(uploadId);
+    }
+
+    @Override
+    public StoredFile storeDerived(Path source, String volume, String storedFilename, String contentType) {
+        return timedWrite("derived", () -> delegate.storeDerived(source, volume, storedFilename, contentType));
+    }
+
+    @Override
+    public void delete(String volume, String storedFilename) {
+        delegate.delete(volume, storedFilename);
+    }
+
+    @Override
+    public String mediaInput(String volume, String storedFilename) {
+        return delegate.mediaInput(volume, storedFilename);
+    }
+
+    @Override
+    public String locate(String volume, String storedFilename) {
+        return delegate.locate(volume, storedFilename);
+    }
+
+    private StoredFile timedWrite(String kind, Supplier<StoredFile> write) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            StoredFile stored = write.get();
+            outcome = "success";
+            recordBytes(kind, stored.sizeBytes(), System.nanoTime() - start);
+            return stored;
+        } finally {
+            writeTimer(kind, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer writeTimer(String kind, String outcome) {
+        return Timer.builder("video.storage.write")
+                .description("Time to persist a file or chunk")
+                .tag("kind", kind)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private void recordBytes(String kind, long bytes, long nanos) {
+        DistributionSummary.builder("video.storage.write.size")
+                .description("Bytes persisted per write")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .register(registry)
+                .record(bytes);
+        if (nanos > 0) {
+            DistributionSummary.builder("video.storage.write.throughput")
+                    .description("Bytes per second achieved by each write")
+                    .baseUnit("bytes_per_second")
+                    .tag("kind", kind)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(bytes * 1e9 / nanos);
+        }
+    }
+}
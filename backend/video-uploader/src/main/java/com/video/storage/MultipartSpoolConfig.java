@@ -0,0 +1,44 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.boot.servlet.autoconfigure.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import jakarta.servlet.MultipartConfigElement;
+
+/**
+ * Spools multipart uploads inside the storage root unless {@code spring.servlet.multipart.location}
+ * is set explicitly, so {@link FileSystemStorageService#store} can rename the part into place.
+ * The container spools before the target volume is chosen, so this is always the primary volume:
+ * a part that lands on one of {@code storage.volumes} is copied across devices instead. Resumable
+ * uploads do not have that cost, as they are staged on their target volume from the first chunk.
+ */
+@Configuration
+public class MultipartSpoolConfig {
+
+    @Bean
+    public MultipartConfigElement multipartConfigElement(MultipartProperties multipart, StorageProperties storage) {
+        String location = multipart.getLocation();
+        if (location == null || location.isBlank()) {
+            Path spool = Paths.get(storage.getLocation()).toAbsolutePath().normalize().resolve(".uploads");
+            try {
+                Files.createDirectories(spool);
+            } catch (IOException e) {
+                throw new StorageException("Could not create multipart spool directory", e);
+            }
+            location = spool.toString();
+        }
+
+        return new MultipartConfigElement(
+                location,
+                multipart.getMaxFileSize().toBytes(),
+                multipart.getMaxRequestSize().toBytes(),
+                (int) multipart.getFileSizeThreshold().toBytes()
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * A cache file opened while its entry was locked. The open channel keeps the bytes readable even
+ * if eviction unlinks the file afterwards, which a path handed to the container (and reopened by
+ * its sendfile support later) would not, so reads go through the stream path instead. Closing the
+ * resource closes the channel; one that is never closed is released when it is collected.
+ */
+class OpenFileResource extends AbstractResource implements RangeReadable, AutoCloseable {
+
+    private final FileChannel channel;
+    private final long size;
+    private final long lastModified;
+    private final String filename;
+
+    OpenFileResource(FileChannel channel, long size, long lastModified, String filename) {
+        this.channel = channel;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.filename = filename;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return size;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public String getDescription() {
+        return "cached file " + filename;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return getInputStream(0, size);
+    }
+
+    @Override
+    public InputStream getInputStream(long position, long length) {
+        return new ChannelSlice(position, Math.min(size, position + length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // positional reads, so several ranges of one response can share the channel
+    private final class ChannelSlice extends InputStream {
+        private long position;
+        private final long end;
+
+        ChannelSlice(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return (read(one, 0, 1) < 0) ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of " + filename + " at byte " + position);
+            }
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * A resource that can open a byte range without reading what comes before it, so a ranged
+ * download of a remote object fetches only the requested bytes.
+ */
+public interface RangeReadable extends Resource {
+
+    InputStream getInputStream(long position, long length) throws IOException;
+}
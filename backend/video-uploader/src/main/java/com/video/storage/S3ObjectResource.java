@@ -0,0 +1,81 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.AbstractResource;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+/**
+ * An object in S3 whose size and timestamp were read with a HEAD request. The body is only
+ * fetched when a stream is opened, and a range is fetched with a ranged GET.
+ */
+class S3ObjectResource extends AbstractResource implements RangeReadable {
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String key;
+    private final long contentLength;
+    private final long lastModified;
+
+    S3ObjectResource(S3Client s3, String bucket, String key, long contentLength, long lastModified) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.key = key;
+        this.contentLength = contentLength;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getFilename() {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String getDescription() {
+        return "S3 object [s3://" + bucket + "/" + key + "]";
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return get(GetObjectRequest.builder().bucket(bucket).key(key).build());
+    }
+
+    @Override
+    public InputStream getInputStream(long position, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        return get(GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .range("bytes=" + position + "-" + (position + length - 1))
+                .build());
+    }
+
+    private InputStream get(GetObjectRequest request) throws IOException {
+        try {
+            return s3.getObject(request);
+        } catch (SdkException e) {
+            throw new IOException("Could not read " + getDescription(), e);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.apache5.Apache5HttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+/**
+ * Stores files in an S3-compatible bucket ({@code storage.type=s3}). Uploads are spooled to
+ * {@code storage.location} first, both to hash them and so that files larger than
+ * {@code storage.s3.part-size} can be sent as multipart uploads whose parts go out in parallel.
+ * Reads are ranged GETs through one pooled HTTP client, and ffmpeg reads through presigned URLs.
+ */
+@Service
+@Qualifier(StorageService.BACKEND)
+@ConditionalOnProperty(name = "storage.type", havingValue = "s3")
+public class S3StorageService implements StorageService, DisposableBean {
+
+    // every object lives in the configured bucket; this is what rows record as their volume
+    public static final String VOLUME = "s3";
+
+    // S3 rejects smaller parts, except the last
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final S3Client s3;
+    private final S3Presigner presigner;
+    private final StorageProperties.S3 properties;
+    private final String bucket;
+    private final long partSize;
+    private final boolean contentAddressed;
+    private final Path uploadLocation;
+    private final Path spoolLocation;
+    // shared by all uploads, so it bounds the parts in flight across the whole application
+    private final ThreadPoolExecutor partExecutor;
+
+    public S3StorageService(StorageProperties storageProperties) {
+        this.properties = storageProperties.getS3();
+        if (properties.getBucket() == null || properties.getBucket().isBlank()) {
+            throw new StorageException("storage.s3.bucket must be set");
+        }
+        this.bucket = properties.getBucket();
+        this.partSize = Math.max(MIN_PART_SIZE, properties.getPartSize().toBytes());
+        this.contentAddressed = storageProperties.isContentAddressed();
+
+        Path root = Paths.get(storageProperties.getLocation()).toAbsolutePath().normalize();
+        this.uploadLocation = root.resolve(".uploads");
+        this.spoolLocation = root.resolve(".spool");
+
+        AwsCredentialsProvider credentials = (properties.getAccessKey() == null)
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(properties.getAccessKey(), properties.getSecretKey()));
+
+        S3ClientBuilder client = S3Client.builder();
+        S3Presigner.Builder presign = S3Presigner.builder();
+        if (properties.getEndpoint() != null) {
+            client.endpointOverride(URI.create(properties.getEndpoint()));
+            presign.endpointOverride(URI.create(properties.getEndpoint()));
+        }
+
+        this.s3 = client
+                .region(Region.of(properties.getRegion()))
+                .credentialsProvider(credentials)
+                .forcePathStyle(properties.isPathStyleAccess())
+                .httpClientBuilder(Apache5HttpClient.builder().maxConnections(properties.getMaxConnections()))
+                // payloads are already verified by SHA-256 here; optional checksums also trip up many S3 stand-ins
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED)
+                .build();
+        this.presigner = presign
+                .region(Region.of(properties.getRegion()))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(properties.isPathStyleAccess()).build())
+                .build();
+
+        int concurrency = Math.max(1, properties.getUploadConcurrency());
+        this.partExecutor = new ThreadPoolExecutor(concurrency, concurrency, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("s3-part-"));
+        this.partExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void init() {
+        try {
+            Files.createDirectories(uploadLocation);
+            Files.createDirectories(spoolLocation);
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize storage", e);
+        }
+
+        try {
+            s3.headBucket(b -> b.bucket(bucket));
+        } catch (NoSuchBucketException e) {
+            s3.createBucket(b -> b.bucket(bucket));
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) {
+                throw new StorageException("Could not reach bucket " + bucket, e);
+            }
+            s3.createBucket(b -> b.bucket(bucket));
+        } catch (SdkException e) {
+            throw new StorageException("Could not reach bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        partExecutor.shutdownNow();
+        presigner.close();
+        s3.close();
+    }
+
+    @Override
+    public StoredFile store(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new StorageException("The file is empty");
+        }
+
+        Path spooled = null;
+        try {
+            spooled = Files.createTempFile(spoolLocation, "upload-", ".part");
+            // the container spools parts under storage.location as well (see MultipartSpoolConfig), so
+            // this is a rename and the one read that hashes the part is the only pass before the PUT
+            LocalFiles.Checksum checksum = LocalFiles.receive(file, spooled, true);
+            if (file.getSize() >= 0 && checksum.sizeBytes() != file.getSize()) {
+                throw new StorageException("Stored file size does not match upload");
+            }
+
+            String contentType = (file.getContentType() == null) ? "application/octet-stream" : file.getContentType();
+            return putSpooled(LocalFiles.sanitizeFilename(file.getOriginalFilename()), contentType, spooled, checksum);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
+
+    @Override
+    public Resource loadAsResource(String volume, String storedFilename) {
+        try {
+            HeadObjectResponse head = s3.headObject(h -> h.bucket(bucket).key(storedFilename));
+            return new S3ObjectResource(s3, bucket, storedFilename, head.contentLength(),
+                    (head.lastModified() == null) ? 0 : head.lastModified().toEpochMilli());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new StorageFileNotFoundException("Could not read file: " + storedFilename, e);
+            }
+            throw new StorageException("Could not read file: " + storedFilename, e);
+        } catch (SdkException e) {
+            throw new StorageException("Could not read file: " + storedFilename, e);
+        }
+    }
+
+    @Override
+    public void beginUpload(String uploadId) {
+        try {
+            Files.createFile(resolveUpload(uploadId));
+        } catch (IOException e) {
+            throw new StorageException("Failed to create upload", e);
+        }
+    }
+
+    @Override
+    public long writeChunk(String uploadId, long position, InputStream data, long length) {
+        try {
+            return LocalFiles.writeAt(resolveUpload(uploadId), position, data, length);
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("Upload has no data: " + uploadId, e);
+        } catch (IOException e) {
+            throw new StorageException("Failed to write upload chunk", e);
+        }
+    }
+
+    @Override
+    public StoredFile storeUpload(String uploadId, String originalFilename, String contentType) {
+        Path staging = resolveUpload(uploadId);
+        if (!Files.exists(staging)) {
+            throw new StorageFileNotFoundException("Upload has no data: " + uploadId);
+        }
+
+        try {
+            // chunks arrive out of order, so the staged file can only be hashed once it is whole
+            StoredFile stored = putSpooled(LocalFiles.sanitizeFilename(originalFilename),
+                    (contentType == null) ? "application/octet-stream" : contentType, staging, LocalFiles.checksum(staging));
+            Files.deleteIfExists(staging);
+            return stored;
+        } catch (IOException e) {
+            throw new StorageException("Failed to store upload", e);
+        }
+    }
+
+    @Override
+    public void deleteUpload(String uploadId) {
+        try {
+            Files.deleteIfExists(resolveUpload(uploadId));
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete upload", e);
+        }
+    }
+
+    @Override
+    public StoredFile storeDerived(Path source, String volume, String storedFilename, String contentType) {
+        try {
+            long size = Files.size(source);
+            put(storedFilename, source, size, contentType);
+            Files.deleteIfExists(source);
+            return new StoredFile(source.getFileName().toString(), storedFilename, contentType, size, uri(storedFilename), null, VOLUME);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store derived file " + storedFilename, e);
+        }
+    }
+
+    @Override
+    public void delete(String volume, String storedFilename) {
+        try {
+            s3.deleteObject(d -> d.bucket(bucket).key(storedFilename));
+        } catch (SdkException e) {
+            throw new StorageException("Failed to delete " + storedFilename, e);
+        }
+    }
+
+    @Override
+    public String mediaInput(String volume, String storedFilename) {
+        return presigner.presignGetObject(p -> p
+                        .signatureDuration(properties.getPresignTtl())
+                        .getObjectRequest(g -> g.bucket(bucket).key(storedFilename)))
+                .url()
+                .toString();
+    }
+
+    @Override
+    public String locate(String volume, String storedFilename) {
+        return uri(storedFilename);
+    }
+
+    // the digest is taken before anything is sent, since under content addressing it names the key
+    private StoredFile putSpooled(String original, String contentType, Path file, LocalFiles.Checksum checksum) {
+        String key;
+        if (contentAddressed) {
+            // named by digest, so a duplicate upload finds its bytes already in the bucket and sends nothing.
+            // The HEAD only saves sending them; the write itself is conditional, so two identical uploads
+            // racing past it create the object once. cas/ keys are never deleted outside blob GC, so one
+            // seen here stays.
+            key = "cas/" + checksum.sha256().substring(0, 2) + "/" + checksum.sha256();
+            if (!exists(key)) {
+                putIfAbsent(key, file, checksum.sizeBytes(), contentType);
+            }
+        } else {
+            key = StorageLayout.sharded(UUID.randomUUID() + "-" + original);
+            put(key, file, checksum.sizeBytes(), contentType);
+        }
+
+        return new StoredFile(original, key, contentType, checksum.sizeBytes(), uri(key), checksum.sha256(), VOLUME);
+    }
+
+    private void put(String key, Path file, long size, String contentType) {
+        put(key, file, size, contentType, null);
+    }
+
+    // If-None-Match: * makes S3 refuse the write with 412 when the key exists, which here means done
+    private void putIfAbsent(String key, Path file, long size, String contentType) {
+        try {
+            put(key, file, size, contentType, "*");
+        } catch (StorageException e) {
+            if (!preconditionFailed(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private void put(String key, Path file, long size, String contentType, String ifNoneMatch) {
+        try {
+            if (size <= partSize) {
+                s3.putObject(p -> p.bucket(bucket).key(key).contentType(contentType).ifNoneMatch(ifNoneMatch),
+                        RequestBody.fromFile(file));
+            } else {
+                putMultipart(key, file, size, contentType, ifNoneMatch);
+            }
+        } catch (SdkException e) {
+            throw new StorageException("Failed to upload " + key, e);
+        }
+    }
+
+    private void putMultipart(String key, Path file, long size, String contentType, String ifNoneMatch) {
+        String uploadId = s3.createMultipartUpload(c -> c.bucket(bucket).key(key).contentType(contentType)).uploadId();
+
+        List<Future<CompletedPart>> futures = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long position = offset;
+                long length = Math.min(partSize, size - offset);
+                int number = partNumber;
+                futures.add(partExecutor.submit(() -> {
+                    // the provider may be asked for the body again when the SDK retries a part
+                    RequestBody body = RequestBody.fromContentProvider(
+                            () -> slice(file, position, length), length, "application/octet-stream");
+                    String etag = s3.uploadPart(u -> u.bucket(bucket).key(key).uploadId(uploadId)
+                            .partNumber(number).contentLength(length), body).eTag();
+                    return CompletedPart.builder().partNumber(number).eTag(etag).build();
+                }));
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(futures.size());
+            for (Future<CompletedPart> future : futures) {
+                parts.add(future.get());
+            }
+            s3.completeMultipartUpload(c -> c.bucket(bucket).key(key).uploadId(uploadId).ifNoneMatch(ifNoneMatch)
+                    .multipartUpload(m -> m.parts(parts)));
+
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            futures.forEach(f -> f.cancel(true));
+            abortQuietly(key, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+            throw new StorageException("Multipart upload of " + key + " failed", cause);
+        }
+    }
+
+    private boolean exists(String key) {
+        try {
+            s3.headObject(h -> h.bucket(bucket).key(key));
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean preconditionFailed(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof S3Exception s3e && s3e.statusCode() == 412) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            s3.abortMultipartUpload(a -> a.bucket(bucket).key(key).uploadId(uploadId));
+        } catch (SdkException ignored) {
+            // the bucket's lifecycle rule for incomplete uploads cleans up the rest
+        }
+    }
+
+    private static InputStream slice(Path file, long position, long length) {
+        try {
+            return LocalFiles.slice(file, position, length);
+        } catch (IOException e) {
+            throw new StorageException("Could not read " + file, e);
+        }
+    }
+
+    private String uri(String key) {
+        return "s3://" + bucket + "/" + key;
+    }
+
+    private Path resolveUpload(String uploadId) {
+        try {
+            return uploadLocation.resolve(UUID.fromString(uploadId) + ".part");
+        } catch (IllegalArgumentException e) {
+            throw new StorageException("Invalid upload id");
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+}
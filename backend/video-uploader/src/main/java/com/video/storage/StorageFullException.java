@@ -0,0 +1,8 @@
+package com.video.storage;
+
+public class StorageFullException extends StorageException {
+
+  public StorageFullException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,58 @@
+package com.video.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fan-out directory layout for stored files. A name is placed under two levels of hash-prefix
+ * directories ({@code 3f/a2/<name>}), so no directory grows past a few hundred entries per
+ * million files. Names written before the layout existed (flat files in the volume root and
+ * {@code hls/<videoId>/} trees, now {@code renditions/<shard>/<videoId>/}) map to exactly one new
+ * name, which lets readers find a file whichever side of a migration it is on.
+ */
+public final class StorageLayout {
+
+    private static final Pattern LEGACY_HLS = Pattern.compile("hls/(\\d+)/(.+)");
+
+    private StorageLayout() {
+    }
+
+    /** The {@code xx/yy/} directory prefix for a key. */
+    public static String shard(String key) {
+        byte[] digest = sha256().digest(key.getBytes(StandardCharsets.UTF_8));
+        HexFormat hex = HexFormat.of();
+        return hex.toHexDigits(digest[0]) + "/" + hex.toHexDigits(digest[1]) + "/";
+    }
+
+    public static String sharded(String filename) {
+        return shard(filename) + filename;
+    }
+
+    public static String renditionPrefix(long videoId) {
+        return "renditions/" + shard(String.valueOf(videoId)) + videoId + "/";
+    }
+
+    /** The sharded name for a name in the legacy layout, or null if it is already sharded. */
+    public static String migrated(String storedName) {
+        if (storedName.indexOf('/') < 0) {
+            return sharded(storedName);
+        }
+        Matcher hls = LEGACY_HLS.matcher(storedName);
+        if (hls.matches()) {
+            return renditionPrefix(Long.parseLong(hls.group(1))) + hls.group(2);
+        }
+        return null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageException("SHA-256 is not available", e);
+        }
+    }
+}
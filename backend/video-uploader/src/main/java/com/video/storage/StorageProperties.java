@@ -1,10 +1,105 @@
 package com.video.storage;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties("storage")
 public class StorageProperties {
+    // filesystem or s3; with s3, location only holds chunks and spooled uploads on their way out
+    private String type = "filesystem";
     private String location = "uploads";
+    private boolean contentAddressed = false;
+    // extra roots by name, used alongside location (which is the "primary" volume)
+    private Map<String, String> volumes = new LinkedHashMap<>();
+    private DataSize minFreeSpace = DataSize.ofGigabytes(1);
+    private final Migration migration = new Migration();
+    private final S3 s3 = new S3();
+    private final Cache cache = new Cache();
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
     public String getLocation() { return location; }
     public void setLocation(String location) { this.location = location; }
-}
\ No newline at end of file
+    public boolean isContentAddressed() { return contentAddressed; }
+    public void setContentAddressed(boolean contentAddressed) { this.contentAddressed = contentAddressed; }
+    public Map<String, String> getVolumes() { return volumes; }
+    public void setVolumes(Map<String, String> volumes) { this.volumes = volumes; }
+    public DataSize getMinFreeSpace() { return minFreeSpace; }
+    public void setMinFreeSpace(DataSize minFreeSpace) { this.minFreeSpace = minFreeSpace; }
+    public Migration getMigration() { return migration; }
+    public S3 getS3() { return s3; }
+    public Cache getCache() { return cache; }
+
+    public static class Migration {
+        private boolean enabled = false;
+        private int batchSize = 200;
+        private Duration interval = Duration.ofSeconds(10);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        public Duration getInterval() { return interval; }
+        public void setInterval(Duration interval) { this.interval = interval; }
+    }
+
+    public static class S3 {
+        private String endpoint;
+        private String region = "us-east-1";
+        private String bucket;
+        private String accessKey;
+        private String secretKey;
+        private boolean pathStyleAccess = false;
+        private DataSize partSize = DataSize.ofMegabytes(16);
+        private int uploadConcurrency = 8;
+        private int maxConnections = 64;
+        private Duration presignTtl = Duration.ofHours(1);
+
+        public String getEndpoint() { return endpoint; }
+        public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+        public String getRegion() { return region; }
+        public void setRegion(String region) { this.region = region; }
+        public String getBucket() { return bucket; }
+        public void setBucket(String bucket) { this.bucket = bucket; }
+        public String getAccessKey() { return accessKey; }
+        public void setAccessKey(String accessKey) { this.accessKey = accessKey; }
+        public String getSecretKey() { return secretKey; }
+        public void setSecretKey(String secretKey) { this.secretKey = secretKey; }
+        public boolean isPathStyleAccess() { return pathStyleAccess; }
+        public void setPathStyleAccess(boolean pathStyleAccess) { this.pathStyleAccess = pathStyleAccess; }
+        public DataSize getPartSize() { return partSize; }
+        public void setPartSize(DataSize partSize) { this.partSize = partSize; }
+        public int getUploadConcurrency() { return uploadConcurrency; }
+        public void setUploadConcurrency(int uploadConcurrency) { this.uploadConcurrency = uploadConcurrency; }
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+        public Duration getPresignTtl() { return presignTtl; }
+        public void setPresignTtl(Duration presignTtl) { this.presignTtl = presignTtl; }
+    }
+
+    public static class Cache {
+        private boolean enabled = false;
+        private String location = "cache";
+        private DataSize capacity = DataSize.ofGigabytes(10);
+        // granularity at which partially read files are fetched and kept
+        private DataSize blockSize = DataSize.ofMegabytes(1);
+        private int writeBackThreads = 2;
+        private Duration writeBackRetry = Duration.ofSeconds(30);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public String getLocation() { return location; }
+        public void setLocation(String location) { this.location = location; }
+        public DataSize getCapacity() { return capacity; }
+        public void setCapacity(DataSize capacity) { this.capacity = capacity; }
+        public DataSize getBlockSize() { return blockSize; }
+        public void setBlockSize(DataSize blockSize) { this.blockSize = blockSize; }
+        public int getWriteBackThreads() { return writeBackThreads; }
+        public void setWriteBackThreads(int writeBackThreads) { this.writeBackThreads = writeBackThreads; }
+        public Duration getWriteBackRetry() { return writeBackRetry; }
+        public void setWriteBackRetry(Duration writeBackRetry) { this.writeBackRetry = writeBackRetry; }
+    }
+}
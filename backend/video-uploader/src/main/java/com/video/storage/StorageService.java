@@ -1,17 +1,58 @@
 package com.video.storage;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.core.io.Resource;
 
 public interface StorageService {
       
+    // files recorded without a volume live on the primary storage.location
+    String PRIMARY_VOLUME = "primary";
+
+    // qualifies the backend selected by storage.type, which the @Primary decorators wrap
+    String BACKEND = "storageBackend";
+
     void init();
     StoredFile store (MultipartFile file);
-    Resource loadAsResource(String filename);
+    Resource loadAsResource(String volume, String filename);
+
+    default Resource loadAsResource(String filename) {
+        return loadAsResource(null, filename);
+    }
+
+    /** Creates the empty staging file for an upload session; chunks can only be written once it exists. */
+    void beginUpload(String uploadId);
+    long writeChunk(String uploadId, long position, InputStream data, long length);
+    StoredFile storeUpload(String uploadId, String originalFilename, String contentType);
+    void deleteUpload(String uploadId);
+    StoredFile storeDerived(Path source, String volume, String storedFilename, String contentType);
+
+    /** Removes a stored file that no row refers to, such as one whose video failed to save. */
+    void delete(String volume, String storedFilename);
+
+    /** Closes a resource that holds its file open, as a cache hit does; any other resource is left alone. */
+    static void release(Resource resource) {
+        if (resource instanceof AutoCloseable open) {
+            try {
+                open.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /** Where ffmpeg can read a stored file from: a local path, or a URL for remote backends. */
+    String mediaInput(String volume, String storedFilename);
+
+    /** Where a stored file lives in this backend, as recorded in a row's file path. */
+    String locate(String volume, String storedFilename);
 
     record StoredFile(String originalFilename,
                         String storedFilename,
                         String contentType,
                         long sizeBytes,
-                        String filePath){}
+                        String filePath,
+                        String sha256,
+                        String volume){}
 }
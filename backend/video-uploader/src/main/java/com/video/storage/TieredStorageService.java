@@ -0,0 +1,787 @@
+package com.video.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps recently used files on a fast local disk ({@code storage.cache.location}) in front of the
+ * backend selected by {@code storage.type}, when {@code storage.cache.enabled=true}. A read that
+ * misses is filled from the backend block by block, so a ranged request only caches what it
+ * touched and a partly cached file serves the blocks it has. New files land in the cache and are
+ * copied to the backend in the background; until then they are pinned, and a restart resumes the
+ * copy. Least recently used files are evicted once {@code storage.cache.capacity} is exceeded.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.cache.enabled", havingValue = "true")
+public class TieredStorageService implements StorageService, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredStorageService.class);
+
+    // upper bound on one backend read, so a reader filling a large gap does not hold the file for long
+    private static final int MAX_FILL_BLOCKS = 16;
+
+    private final StorageService backend;
+    private final MeterRegistry registry;
+    private final boolean contentAddressed;
+    private final long capacity;
+    private final long blockSize;
+    private final Duration writeBackRetry;
+    private final Path blocksRoot;
+    private final Path pendingRoot;
+    private final Path uploadsRoot;
+    private final ScheduledThreadPoolExecutor writeBack;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final Path spoolRoot;
+    // multipart parts are spooled under storage.location (see MultipartSpoolConfig); when that is on the
+    // cache's file system they are renamed in, otherwise copied and hashed in one pass
+    private boolean spoolShared;
+
+    // access-ordered, so iteration starts at the least recently used file; guards usedBytes and dirtyBytes too
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+    // bytes not yet copied to the backend; they cannot be evicted, so new files are refused past capacity
+    private long dirtyBytes;
+
+    public TieredStorageService(@Qualifier(BACKEND) StorageService backend,
+                                StorageProperties storageProperties,
+                                MeterRegistry registry) {
+        StorageProperties.Cache properties = storageProperties.getCache();
+        this.backend = backend;
+        this.registry = registry;
+        this.contentAddressed = storageProperties.isContentAddressed();
+        this.capacity = properties.getCapacity().toBytes();
+        this.blockSize = Math.max(64 * 1024, properties.getBlockSize().toBytes());
+        this.writeBackRetry = properties.getWriteBackRetry();
+
+        Path root = Paths.get(properties.getLocation()).toAbsolutePath().normalize();
+        this.blocksRoot = root.resolve("blocks");
+        this.pendingRoot = root.resolve("pending");
+        this.uploadsRoot = root.resolve(".uploads");
+        this.spoolRoot = Paths.get(storageProperties.getLocation()).toAbsolutePath().normalize();
+
+        this.writeBack = new ScheduledThreadPoolExecutor(Math.max(1, properties.getWriteBackThreads()),
+                new CustomizableThreadFactory("cache-writeback-"));
+
+        Gauge.builder("video.storage.cache.size", this, TieredStorageService::usedBytes)
+                .description("Bytes held in the local storage cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("video.storage.cache.files", this, TieredStorageService::cachedFiles)
+                .description("Files with at least one block in the local storage cache")
+                .register(registry);
+        Gauge.builder("video.storage.cache.writeback.pending", pendingWrites, AtomicInteger::get)
+                .description("Files in the cache not yet copied to the backend")
+                .register(registry);
+        Gauge.builder("video.storage.cache.dirty", this, TieredStorageService::dirtyBytes)
+                .description("Bytes in the cache not yet copied to the backend")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void init() {
+        backend.init();
+        try {
+            // which blocks of a file are present is only known in memory, so the cache starts cold
+            FileSystemUtils.deleteRecursively(blocksRoot);
+            Files.createDirectories(blocksRoot);
+            Files.createDirectories(pendingRoot);
+            Files.createDirectories(uploadsRoot);
+            spoolShared = Files.isDirectory(spoolRoot)
+                    && Files.getFileStore(spoolRoot).equals(Files.getFileStore(pendingRoot));
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(pendingRoot)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".properties")) {
+                        resume(name.substring(0, name.length() - ".properties".length()));
+                    } else if (!name.endsWith(".data") || !Files.exists(pendingRoot.resolve(name.replace(".data", ".properties")))) {
+                        // a copy in flight, or a file whose record was never written
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize storage cache", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // anything still pending is picked up again on the next start
+        writeBack.shutdownNow();
+    }
+
+    @Override
+    public StoredFile store(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new StorageException("The file is empty");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path data = pendingData(id);
+        try {
+            LocalFiles.Checksum checksum = LocalFiles.receive(file, data, spoolShared);
+            if (file.getSize() >= 0 && checksum.sizeBytes() != file.getSize()) {
+                throw new StorageException("Stored file size does not match upload");
+            }
+
+            String contentType = (file.getContentType() == null) ? "application/octet-stream" : file.getContentType();
+            return storeNew(id, LocalFiles.sanitizeFilename(file.getOriginalFilename()), contentType, checksum);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(data);
+            throw (e instanceof StorageException se) ? se : new StorageException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public Resource loadAsResource(String volume, String storedFilename) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(storedFilename);
+        }
+        if (entry != null && entry.complete) {
+            Resource cached = openCached(entry);
+            if (cached != null) {
+                request("hit");
+                return cached;
+            }
+        }
+
+        Resource source = backend.loadAsResource(volume, storedFilename);
+        if (entry == null) {
+            long size;
+            try {
+                size = source.contentLength();
+            } catch (IOException e) {
+                throw new StorageException("Could not read file: " + storedFilename, e);
+            }
+            if (size > capacity) {
+                request("bypass");
+                return source;
+            }
+            entry = register(storedFilename, size);
+        }
+
+        request(entry.hasBlocks() ? "partial" : "miss");
+        return new CachedResource(this, entry, source);
+    }
+
+    @Override
+    public void beginUpload(String uploadId) {
+        try {
+            Files.createFile(staging(uploadId));
+        } catch (IOException e) {
+            throw new StorageException("Failed to create upload", e);
+        }
+    }
+
+    @Override
+    public long writeChunk(String uploadId, long position, InputStream data, long length) {
+        try {
+            return LocalFiles.writeAt(staging(uploadId), position, data, length);
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("Upload has no data: " + uploadId, e);
+        } catch (IOException e) {
+            throw new StorageException("Failed to write upload chunk", e);
+        }
+    }
+
+    @Override
+    public StoredFile storeUpload(String uploadId, String originalFilename, String contentType) {
+        Path staging = staging(uploadId);
+        if (!Files.exists(staging)) {
+            throw new StorageFileNotFoundException("Upload has no data: " + uploadId);
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path data = pendingData(id);
+        try {
+            Files.move(staging, data, StandardCopyOption.ATOMIC_MOVE);
+            // chunks arrive out of order, so the file can only be hashed once it is whole
+            return storeNew(id, LocalFiles.sanitizeFilename(originalFilename),
+                    (contentType == null) ? "application/octet-stream" : contentType, LocalFiles.checksum(data));
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(data);
+            throw (e instanceof StorageException se) ? se : new StorageException("Failed to store upload", e);
+        }
+    }
+
+    @Override
+    public void deleteUpload(String uploadId) {
+        try {
+            Files.deleteIfExists(staging(uploadId));
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete upload", e);
+        }
+    }
+
+    @Override
+    public StoredFile storeDerived(Path source, String volume, String storedFilename, String contentType) {
+        String id = UUID.randomUUID().toString();
+        Path data = pendingData(id);
+        try {
+            Files.move(source, data);
+            long size = Files.size(data);
+            admit(id, storedFilename, volume, contentType, size);
+            return new StoredFile(source.getFileName().toString(), storedFilename, contentType, size,
+                    backend.locate(home(volume), storedFilename), null, volume);
+        } catch (IOException e) {
+            deleteQuietly(data);
+            throw new StorageException("Failed to store derived file " + storedFilename, e);
+        }
+    }
+
+    @Override
+    public void delete(String volume, String storedFilename) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.remove(storedFilename);
+            if (entry != null) {
+                remove(entry);
+                entry.discarded = true;
+            }
+        }
+        if (entry != null) {
+            deleteQuietly(entry.file);
+        }
+        // a copy already on its way deletes its result once it sees the entry was discarded
+        backend.delete(home(volume), storedFilename);
+    }
+
+    @Override
+    public String mediaInput(String volume, String storedFilename) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(storedFilename);
+        }
+        if (entry != null && entry.complete && Files.exists(entry.file)) {
+            return entry.file.toString();
+        }
+        return backend.mediaInput(volume, storedFilename);
+    }
+
+    @Override
+    public String locate(String volume, String storedFilename) {
+        return backend.locate(home(volume), storedFilename);
+    }
+
+    // uploads are recorded without a volume and copied to the backend's primary one
+    private StoredFile storeNew(String id, String original, String contentType, LocalFiles.Checksum checksum) throws IOException {
+        String key = contentAddressed
+                ? "cas/" + checksum.sha256().substring(0, 2) + "/" + checksum.sha256()
+                : StorageLayout.sharded(UUID.randomUUID() + "-" + original);
+
+        boolean cached;
+        synchronized (entries) {
+            cached = contentAddressed && entries.containsKey(key);
+        }
+        if (cached) {
+            // the same bytes are already cached, so they are in the backend or on their way there
+            Files.delete(pendingData(id));
+        } else {
+            admit(id, key, null, contentType, checksum.sizeBytes());
+        }
+
+        return new StoredFile(original, key, contentType, checksum.sizeBytes(),
+                backend.locate(home(null), key), checksum.sha256(), null);
+    }
+
+    // the record is written last and atomically, so a pending file without one is an unfinished write
+    private void admit(String id, String key, String volume, String contentType, long size) throws IOException {
+        synchronized (entries) {
+            if (dirtyBytes + size > capacity) {
+                registry.counter("video.storage.cache.rejected").increment();
+                throw new StorageFullException("Storage cache is full of files not yet copied to the backend");
+            }
+            dirtyBytes += size;
+        }
+        try {
+            record(id, key, volume, contentType);
+            Entry entry = pin(id, key, size);
+            pendingWrites.incrementAndGet();
+            writeBack.execute(() -> writeBack(id, entry, volume, contentType));
+        } catch (IOException | RuntimeException e) {
+            synchronized (entries) {
+                dirtyBytes -= size;
+            }
+            throw e;
+        }
+    }
+
+    private void record(String id, String key, String volume, String contentType) throws IOException {
+        Properties record = new Properties();
+        record.setProperty("key", key);
+        record.setProperty("contentType", contentType);
+        if (volume != null) {
+            record.setProperty("volume", volume);
+        }
+        Path partial = pendingRoot.resolve(id + ".properties.tmp");
+        try (Writer out = Files.newBufferedWriter(partial)) {
+            record.store(out, null);
+        }
+        Files.move(partial, pendingRecord(id), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void resume(String id) throws IOException {
+        Path data = pendingData(id);
+        if (!Files.exists(data)) {
+            Files.deleteIfExists(pendingRecord(id));
+            return;
+        }
+
+        Properties record = new Properties();
+        try (Reader in = Files.newBufferedReader(pendingRecord(id))) {
+            record.load(in);
+        }
+        String volume = record.getProperty("volume");
+        String contentType = record.getProperty("contentType");
+        long size = Files.size(data);
+        // already accepted before the restart, so resumed even if that takes the cache past capacity
+        synchronized (entries) {
+            dirtyBytes += size;
+        }
+        Entry entry = pin(id, record.getProperty("key"), size);
+        pendingWrites.incrementAndGet();
+        writeBack.execute(() -> writeBack(id, entry, volume, contentType));
+    }
+
+    private void writeBack(String id, Entry entry, String volume, String contentType) {
+        Path send = pendingRoot.resolve(id + ".send");
+        try {
+            // a newer file under the same name has replaced this one, and will be copied itself
+            if (!entry.evicted) {
+                // the backend consumes what it is given, so it gets a second link and the pending file stays until it is done
+                link(pendingData(id), send);
+                backend.storeDerived(send, home(volume), entry.key, contentType);
+                if (entry.discarded) {
+                    backend.delete(home(volume), entry.key);
+                }
+            }
+            Files.deleteIfExists(pendingRecord(id));
+            Files.deleteIfExists(pendingData(id));
+
+            entry.dirty = false;
+            synchronized (entries) {
+                dirtyBytes -= entry.size;
+            }
+            pendingWrites.decrementAndGet();
+            registry.counter("video.storage.cache.writeback", "outcome", "success").increment();
+
+            List<Entry> victims;
+            synchronized (entries) {
+                victims = evictIfNeeded();
+            }
+            delete(victims);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(send);
+            registry.counter("video.storage.cache.writeback", "outcome", "error").increment();
+            log.warn("Copying {} to the storage backend failed; retrying in {}", entry.key, writeBackRetry, e);
+            if (!writeBack.isShutdown()) {
+                writeBack.schedule(() -> writeBack(id, entry, volume, contentType),
+                        writeBackRetry.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // a file that is complete in the cache and may not be evicted until the backend has it
+    private Entry pin(String id, String key, long size) throws IOException {
+        Path file = newCacheFile();
+        link(pendingData(id), file);
+
+        Entry entry = new Entry(key, file, size, blockCount(size));
+        entry.blocks.set(0, entry.blockCount);
+        entry.complete = true;
+        entry.dirty = true;
+
+        List<Entry> victims = new ArrayList<>();
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                remove(previous);
+                victims.add(previous);
+            }
+            entry.cachedBytes = size;
+            usedBytes += size;
+            victims.addAll(evictIfNeeded());
+        }
+        delete(victims);
+        return entry;
+    }
+
+    private Entry register(String key, long size) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key, newCacheFile(), size, blockCount(size));
+                entry.complete = (entry.blockCount == 0);
+                entries.put(key, entry);
+            }
+            return entry;
+        }
+    }
+
+    InputStream open(Entry entry, Resource source, long position, long length) {
+        return new BlockInputStream(entry, source, position, position + length);
+    }
+
+    /**
+     * Makes sure the block holding {@code position} is cached and opens the cached run starting
+     * there, ending at {@code end} at the latest. Missing blocks are read from the backend in one
+     * request of at most {@link #MAX_FILL_BLOCKS}. Returns null once the entry has been evicted.
+     * The entry is only locked to read and publish its block bits: the backend read, the local
+     * write and opening the run happen outside it, so a slow backend never holds a carrier thread
+     * or other readers of the file. Two readers filling the same gap write the same bytes.
+     */
+    private Run fill(Entry entry, Resource source, long position, long end) throws IOException {
+        int block = (int) (position / blockSize);
+        int lastBlock = (int) ((end - 1) / blockSize);
+        int last = -1;
+        synchronized (entry) {
+            if (entry.evicted) {
+                return null;
+            }
+            if (!entry.blocks.get(block)) {
+                int next = entry.blocks.nextSetBit(block);
+                last = Math.min(Math.min(lastBlock, block + MAX_FILL_BLOCKS - 1), (next < 0) ? lastBlock : next - 1);
+            }
+        }
+
+        long filled = 0;
+        if (last >= 0) {
+            long start = block * blockSize;
+            long length = Math.min(entry.size, (last + 1) * blockSize) - start;
+            try {
+                Files.createDirectories(entry.file.getParent());
+                try {
+                    Files.createFile(entry.file);
+                } catch (FileAlreadyExistsException ignored) {
+                }
+                try (InputStream in = range(source, start, length)) {
+                    if (LocalFiles.writeAt(entry.file, start, in, length) != length) {
+                        throw new IOException("Backend returned fewer bytes than requested for " + entry.key);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // eviction deleted the file under the write
+                if (entry.evicted) {
+                    return null;
+                }
+                throw e;
+            }
+
+            synchronized (entry) {
+                if (!entry.evicted) {
+                    filled = missingBytes(entry, block, last);
+                    entry.blocks.set(block, last + 1);
+                    entry.complete = entry.blocks.cardinality() == entry.blockCount;
+                }
+            }
+            // evicted while filling; the file may have been created again after eviction deleted it
+            if (entry.evicted) {
+                deleteQuietly(entry.file);
+                return null;
+            }
+        }
+
+        long runEnd;
+        synchronized (entry) {
+            runEnd = Math.min(end, entry.blocks.nextClearBit(block) * blockSize);
+        }
+        Run run = openRun(entry, position, runEnd);
+
+        if (filled > 0) {
+            registry.counter("video.storage.cache.fill").increment(filled);
+            List<Entry> victims;
+            synchronized (entries) {
+                if (!entry.evicted) {
+                    entry.cachedBytes += filled;
+                    usedBytes += filled;
+                }
+                victims = evictIfNeeded();
+            }
+            delete(victims);
+        }
+        return run;
+    }
+
+    // eviction marks an entry before it deletes the file, and cache files are never reused, so a
+    // stream opened while the entry is still unmarked reads the right bytes even if the file goes next
+    private static Run openRun(Entry entry, long position, long runEnd) throws IOException {
+        InputStream in;
+        try {
+            in = LocalFiles.slice(entry.file, position, runEnd - position);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (entry.evicted) {
+            in.close();
+            return null;
+        }
+        return new Run(in, runEnd);
+    }
+
+    // bytes of blocks first..last not cached yet; caller holds the entry lock
+    private long missingBytes(Entry entry, int first, int last) {
+        long bytes = 0;
+        for (int b = entry.blocks.nextClearBit(first); b <= last; b = entry.blocks.nextClearBit(b + 1)) {
+            bytes += Math.min(entry.size, (b + 1) * blockSize) - b * blockSize;
+        }
+        return bytes;
+    }
+
+    // caller holds the entries lock
+    private List<Entry> evictIfNeeded() {
+        List<Entry> victims = new ArrayList<>();
+        Iterator<Entry> it = entries.values().iterator();
+        while (usedBytes > capacity && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.dirty) {
+                continue;
+            }
+            it.remove();
+            remove(entry);
+            victims.add(entry);
+        }
+        return victims;
+    }
+
+    // caller holds the entries lock
+    private void remove(Entry entry) {
+        entry.evicted = true;
+        usedBytes -= entry.cachedBytes;
+    }
+
+    // victims are already marked evicted, so readers stop opening their files before these go
+    private void delete(List<Entry> victims) {
+        for (Entry victim : victims) {
+            deleteQuietly(victim.file);
+            registry.counter("video.storage.cache.evictions").increment();
+        }
+    }
+
+    private static InputStream range(Resource source, long position, long length) throws IOException {
+        if (source instanceof RangeReadable ranged) {
+            return ranged.getInputStream(position, length);
+        }
+        if (source.isFile()) {
+            return LocalFiles.slice(source.getFile().toPath(), position, length);
+        }
+        InputStream in = source.getInputStream();
+        in.skipNBytes(position);
+        return LocalFiles.limit(in, length);
+    }
+
+    private static String home(String volume) {
+        return (volume == null) ? PRIMARY_VOLUME : volume;
+    }
+
+    private void request(String result) {
+        registry.counter("video.storage.cache.requests", "result", result).increment();
+    }
+
+    private double usedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    private double dirtyBytes() {
+        synchronized (entries) {
+            return dirtyBytes;
+        }
+    }
+
+    private double cachedFiles() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private int blockCount(long size) {
+        return (int) ((size + blockSize - 1) / blockSize);
+    }
+
+    private Path newCacheFile() {
+        return blocksRoot.resolve(StorageLayout.sharded(UUID.randomUUID().toString()));
+    }
+
+    private Path pendingData(String id) {
+        return pendingRoot.resolve(id + ".data");
+    }
+
+    private Path pendingRecord(String id) {
+        return pendingRoot.resolve(id + ".properties");
+    }
+
+    private Path staging(String uploadId) {
+        try {
+            return uploadsRoot.resolve(UUID.fromString(uploadId) + ".part");
+        } catch (IllegalArgumentException e) {
+            throw new StorageException("Invalid upload id");
+        }
+    }
+
+    private static void link(Path existing, Path link) throws IOException {
+        Files.createDirectories(link.getParent());
+        Files.deleteIfExists(link);
+        try {
+            Files.createLink(link, existing);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(existing, link);
+        }
+    }
+
+    // opened without the entry lock and checked afterwards, as a fill's run is (see openRun)
+    private static Resource openCached(Entry entry) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(entry.file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            if (!entry.evicted) {
+                return new OpenFileResource(channel, entry.size,
+                        Files.getLastModifiedTime(entry.file).toMillis(), entry.file.getFileName().toString());
+            }
+        } catch (IOException ignored) {
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private record Run(InputStream in, long end) {}
+
+    /**
+     * One stored file's cache state; blocks are guarded by the entry, cachedBytes by the map. Only
+     * bookkeeping happens under the entry's lock, never file or backend I/O.
+     */
+    static final class Entry {
+        final String key;
+        final Path file;
+        final long size;
+        final int blockCount;
+        final BitSet blocks;
+        long cachedBytes;
+        volatile boolean complete;
+        volatile boolean dirty;
+        volatile boolean evicted;
+        volatile boolean discarded;
+
+        Entry(String key, Path file, long size, int blockCount) {
+            this.key = key;
+            this.file = file;
+            this.size = size;
+            this.blockCount = blockCount;
+            this.blocks = new BitSet(blockCount);
+        }
+
+        boolean hasBlocks() {
+            synchronized (this) {
+                return !blocks.isEmpty();
+            }
+        }
+    }
+
+    // reads [position, end) a cached run at a time, going straight to the backend if the entry is evicted
+    private final class BlockInputStream extends InputStream {
+        private final Entry entry;
+        private final Resource source;
+        private final long end;
+        private long position;
+        private InputStream current;
+        private long currentEnd;
+
+        BlockInputStream(Entry entry, Resource source, long position, long end) {
+            this.entry = entry;
+            this.source = source;
+            this.position = position;
+            this.end = Math.min(end, entry.size);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return (read(one, 0, 1) < 0) ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            if (current == null) {
+                Run run = fill(entry, source, position, end);
+                current = (run != null) ? run.in() : range(source, position, end - position);
+                currentEnd = (run != null) ? run.end() : end;
+            }
+
+            int n = current.read(b, off, (int) Math.min(len, currentEnd - position));
+            if (n < 0) {
+                throw new IOException("Unexpected end of " + entry.key + " at byte " + position);
+            }
+            position += n;
+            if (position >= currentEnd) {
+                current.close();
+                current = null;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
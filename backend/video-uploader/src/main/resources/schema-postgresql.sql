@@ -0,0 +1,59 @@
+-- Runs after Hibernate has created or updated the tables (spring.jpa.defer-datasource-initialization).
+
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_videos_search_vector ON videos USING GIN (search_vector);
+
+-- Tables created before ids came from pooled sequences hold rows numbered by their identity column;
+-- move each sequence past them once. Afterwards the sequence is always ahead and nothing is touched,
+-- so an instance starting up never rewinds one that another instance is allocating from.
+SELECT setval('raw_files_seq', m) FROM (SELECT MAX(id) AS m FROM raw_files) t
+WHERE m > (SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM raw_files_seq);
+
+SELECT setval('videos_seq', m) FROM (SELECT MAX(id) AS m FROM videos) t
+WHERE m > (SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM videos_seq);
+
+SELECT setval('video_renditions_seq', m) FROM (SELECT MAX(id) AS m FROM video_renditions) t
+WHERE m > (SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM video_renditions_seq);
+
+-- The feed's ETag is built from this counter, which every statement that adds, removes or changes
+-- what the feed shows moves in its own transaction, so revalidating the feed is one row read however
+-- large it is. Statements that touch no row, or only columns the feed does not show, leave it alone.
+CREATE TABLE IF NOT EXISTS feed_version (version bigint NOT NULL);
+
+INSERT INTO feed_version (version) SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM feed_version);
+
+CREATE OR REPLACE FUNCTION bump_feed_version_if_rows() RETURNS trigger LANGUAGE plpgsql AS
+    'BEGIN
+        IF EXISTS (SELECT 1 FROM changed) THEN
+            UPDATE feed_version SET version = version + 1;
+        END IF;
+        RETURN NULL;
+    END';
+
+CREATE OR REPLACE FUNCTION bump_feed_version_if_shown() RETURNS trigger LANGUAGE plpgsql AS
+    'BEGIN
+        IF EXISTS (SELECT 1 FROM old_rows o JOIN new_rows n ON n.id = o.id
+                   WHERE (n.title, n.description, n.is_private, n.uploader_id, n.processing_status, n.created_at)
+                         IS DISTINCT FROM
+                         (o.title, o.description, o.is_private, o.uploader_id, o.processing_status, o.created_at)) THEN
+            UPDATE feed_version SET version = version + 1;
+        END IF;
+        RETURN NULL;
+    END';
+
+CREATE OR REPLACE TRIGGER videos_feed_insert AFTER INSERT ON videos
+    REFERENCING NEW TABLE AS changed
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_feed_version_if_rows();
+
+CREATE OR REPLACE TRIGGER videos_feed_delete AFTER DELETE ON videos
+    REFERENCING OLD TABLE AS changed
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_feed_version_if_rows();
+
+CREATE OR REPLACE TRIGGER videos_feed_update AFTER UPDATE ON videos
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_feed_version_if_shown();
@@ -0,0 +1,151 @@
+package com.video.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class RangeResourceWriterTest {
+
+    private static final String BODY = "0123456789abcdefghij";
+    private static final String ETAG = "\"7-14-1\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    private final RangeResourceWriter writer = new RangeResourceWriter();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void withoutRangeTheWholeFileIsSent() throws IOException {
+        MockHttpServletResponse response = write(request(null));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(response.getContentLengthLong()).isEqualTo(BODY.length());
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    void singleRangeIsPartialContent() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=5-9"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 5-9/20");
+        assertThat(response.getContentLengthLong()).isEqualTo(5);
+        assertThat(response.getContentAsString()).isEqualTo("56789");
+    }
+
+    @Test
+    void suffixRangeAndRangePastTheEndAreClamped() throws IOException {
+        assertThat(write(request("bytes=-4")).getContentAsString()).isEqualTo("ghij");
+
+        MockHttpServletResponse response = write(request("bytes=15-99"));
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 15-19/20");
+        assertThat(response.getContentAsString()).isEqualTo("fghij");
+    }
+
+    @Test
+    void severalRangesAreSentAsMultipartByteranges() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=0-1,10-12"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String boundary = response.getContentType().substring(response.getContentType().indexOf('=') + 1);
+        String body = response.getContentAsString();
+
+        assertThat(body).isEqualTo(
+                "\r\n--" + boundary + "\r\nContent-Type: video/mp4\r\nContent-Range: bytes 0-1/20\r\n\r\n01"
+                + "\r\n--" + boundary + "\r\nContent-Type: video/mp4\r\nContent-Range: bytes 10-12/20\r\n\r\nabc"
+                + "\r\n--" + boundary + "--\r\n");
+        assertThat(response.getContentLengthLong()).isEqualTo(body.getBytes(StandardCharsets.US_ASCII).length);
+    }
+
+    @Test
+    void unsatisfiableRangesAreDroppedAnd416OnlyWhenNoneRemain() throws IOException {
+        MockHttpServletResponse partly = write(request("bytes=50-60,2-3"));
+        assertThat(partly.getStatus()).isEqualTo(206);
+        assertThat(partly.getContentAsString()).isEqualTo("23");
+
+        MockHttpServletResponse none = write(request("bytes=20-30"));
+        assertThat(none.getStatus()).isEqualTo(416);
+        assertThat(none.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+        assertThat(none.getContentAsString()).isEmpty();
+    }
+
+    @Test
+    void overlappingRangesAddingUpToMoreThanTheFileAre416() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=0-15,5-19"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=oops"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    void ifRangeWithTheCurrentValidatorKeepsTheRange() throws IOException {
+        MockHttpServletRequest byEtag = request("bytes=0-3");
+        byEtag.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        assertThat(write(byEtag).getStatus()).isEqualTo(206);
+
+        MockHttpServletRequest byDate = request("bytes=0-3");
+        byDate.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED);
+        assertThat(write(byDate).getStatus()).isEqualTo(206);
+    }
+
+    @Test
+    void ifRangeWithAStaleOrWeakValidatorSendsTheWholeFile() throws IOException {
+        for (Object validator : new Object[]{"\"stale\"", "W/" + ETAG, LAST_MODIFIED - 60_000}) {
+            MockHttpServletRequest request = request("bytes=0-3");
+            request.addHeader(HttpHeaders.IF_RANGE, validator);
+
+            MockHttpServletResponse response = write(request);
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getContentAsString()).isEqualTo(BODY);
+        }
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest request = request("bytes=0-3");
+        request.setMethod("HEAD");
+
+        MockHttpServletResponse response = write(request);
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/7/download");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws IOException {
+        Path file = Files.writeString(dir.resolve("video.mp4"), BODY);
+        Resource resource = new FileSystemResource(file);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(request, response, resource, "video/mp4", "attachment; filename=\"video.mp4\"", ETAG, LAST_MODIFIED);
+        return response;
+    }
+}
@@ -0,0 +1,206 @@
+package com.video.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.util.FileSystemUtils;
+
+import com.jayway.jsonpath.JsonPath;
+import com.video.entities.User;
+import com.video.repositories.UserRepository;
+import com.video.security.JwtService;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * The chunked upload protocol end to end: chunks may arrive in any order and be resent, the
+ * committed offset only advances over a contiguous prefix, and completing needs every chunk.
+ */
+@SpringBootTest(properties = "jwt.secret=0123456789abcdef0123456789abcdef0123456789abcdef")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UploadSessionControllerTest {
+
+    private static final int CHUNK = 64 * 1024;
+
+    private static EmbeddedPostgres postgres;
+    private static Path storage;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JwtService jwtService;
+
+    private String owner;
+    private String stranger;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        storage = Files.createTempDirectory("video-uploader-test");
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("storage.location", storage::toString);
+    }
+
+    @BeforeAll
+    void seed() {
+        owner = bearer(user("owner"));
+        stranger = bearer(user("stranger"));
+    }
+
+    @AfterAll
+    void stop() throws IOException {
+        postgres.close();
+        FileSystemUtils.deleteRecursively(storage);
+    }
+
+    @Test
+    void chunksInAnyOrderAreAssembledOnceAllHaveArrived() throws Exception {
+        byte[] data = bytes(2 * CHUNK + 100);
+        String id = create(data.length);
+
+        chunk(id, 2 * CHUNK, Arrays.copyOfRange(data, 2 * CHUNK, data.length))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.committedOffset").value(0))
+                .andExpect(jsonPath("$.receivedBytes").value(100));
+        chunk(id, 0, Arrays.copyOfRange(data, 0, CHUNK))
+                .andExpect(jsonPath("$.committedOffset").value(CHUNK))
+                .andExpect(jsonPath("$.complete").value(false));
+
+        mvc.perform(post("/api/videos/uploads/{id}/complete", id).header(HttpHeaders.AUTHORIZATION, owner))
+                .andExpect(status().isConflict());
+
+        // a client that lost track of its progress asks for the offset and resumes from there
+        mvc.perform(get("/api/videos/uploads/{id}", id).header(HttpHeaders.AUTHORIZATION, owner))
+                .andExpect(jsonPath("$.committedOffset").value(CHUNK))
+                .andExpect(jsonPath("$.receivedBytes").value(CHUNK + 100));
+        chunk(id, CHUNK, Arrays.copyOfRange(data, CHUNK, 2 * CHUNK))
+                .andExpect(jsonPath("$.committedOffset").value(data.length))
+                .andExpect(jsonPath("$.complete").value(true));
+
+        String video = mvc.perform(post("/api/videos/uploads/{id}/complete", id).header(HttpHeaders.AUTHORIZATION, owner))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        mvc.perform(get("/api/videos/{id}/download", JsonPath.<Integer>read(video, "$.id")))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(data));
+        mvc.perform(get("/api/videos/uploads/{id}", id).header(HttpHeaders.AUTHORIZATION, owner))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void resentChunkOverwritesInPlace() throws Exception {
+        byte[] data = bytes(CHUNK + 10);
+        String id = create(data.length);
+
+        chunk(id, 0, bytes(CHUNK));
+        chunk(id, 0, Arrays.copyOfRange(data, 0, CHUNK))
+                .andExpect(jsonPath("$.receivedBytes").value(CHUNK));
+        chunk(id, CHUNK, Arrays.copyOfRange(data, CHUNK, data.length))
+                .andExpect(jsonPath("$.complete").value(true));
+
+        String video = mvc.perform(post("/api/videos/uploads/{id}/complete", id).header(HttpHeaders.AUTHORIZATION, owner))
+                .andReturn().getResponse().getContentAsString();
+        mvc.perform(get("/api/videos/{id}/download", JsonPath.<Integer>read(video, "$.id")))
+                .andExpect(content().bytes(data));
+    }
+
+    @Test
+    void offsetsOffTheChunkGridAndShortChunksAreRefused() throws Exception {
+        String id = create(2 * CHUNK);
+
+        chunk(id, 1, bytes(CHUNK)).andExpect(status().isBadRequest());
+        chunk(id, 2 * CHUNK, bytes(CHUNK)).andExpect(status().isBadRequest());
+        chunk(id, -CHUNK, bytes(CHUNK)).andExpect(status().isBadRequest());
+        chunk(id, CHUNK, bytes(CHUNK - 1)).andExpect(status().isBadRequest());
+
+        mvc.perform(get("/api/videos/uploads/{id}", id).header(HttpHeaders.AUTHORIZATION, owner))
+                .andExpect(jsonPath("$.receivedBytes").value(0));
+    }
+
+    @Test
+    void sessionIsInvisibleToOtherUsersAndGoneOnceAborted() throws Exception {
+        String id = create(CHUNK);
+
+        mvc.perform(get("/api/videos/uploads/{id}", id).header(HttpHeaders.AUTHORIZATION, stranger))
+                .andExpect(status().isNotFound());
+        mvc.perform(put("/api/videos/uploads/{id}/chunks", id).param("offset", "0")
+                        .header(HttpHeaders.AUTHORIZATION, stranger)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(bytes(CHUNK)))
+                .andExpect(status().isNotFound());
+
+        mvc.perform(delete("/api/videos/uploads/{id}", id).header(HttpHeaders.AUTHORIZATION, owner))
+                .andExpect(status().isNoContent());
+        chunk(id, 0, bytes(CHUNK)).andExpect(status().isNotFound());
+    }
+
+    private String create(long totalBytes) throws Exception {
+        String body = """
+                {"filename": "clip.mp4", "contentType": "video/mp4", "totalBytes": %d, "chunkSize": %d, "title": "Chunked"}
+                """.formatted(totalBytes, CHUNK);
+        String response = mvc.perform(post("/api/videos/uploads")
+                        .header(HttpHeaders.AUTHORIZATION, owner)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.committedOffset").value(0))
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.uploadId");
+    }
+
+    private ResultActions chunk(String id, long offset, byte[] data) throws Exception {
+        return mvc.perform(put("/api/videos/uploads/{id}/chunks", id)
+                .param("offset", String.valueOf(offset))
+                .header(HttpHeaders.AUTHORIZATION, owner)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(data));
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+
+    private String bearer(User user) {
+        return "Bearer " + jwtService.generateToken(user.getId(), user.getUsername());
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,214 @@
+package com.video.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+
+import com.video.entities.ProcessingStatus;
+import com.video.entities.RawFile;
+import com.video.entities.User;
+import com.video.entities.Video;
+import com.video.repositories.UserRepository;
+import com.video.repositories.VideoRepository;
+import com.video.storage.StorageService;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Conditional requests are answered from row data: the feed from its change counter, files from
+ * their stored validators, so a 304 costs no page query and never opens the file.
+ */
+@SpringBootTest(properties = "jwt.secret=0123456789abcdef0123456789abcdef0123456789abcdef")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class VideoControllerConditionalTest {
+
+    private static EmbeddedPostgres postgres;
+    private static Path storage;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private VideoRepository videoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private StorageService storageService;
+
+    private User owner;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        storage = Files.createTempDirectory("video-uploader-test");
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("storage.location", storage::toString);
+    }
+
+    @BeforeAll
+    void seed() {
+        owner = new User();
+        owner.setUsername("owner");
+        owner.setEmail("owner@example.com");
+        owner.setPassword("x");
+        owner = userRepository.save(owner);
+    }
+
+    @AfterAll
+    void stop() throws IOException {
+        postgres.close();
+        FileSystemUtils.deleteRecursively(storage);
+    }
+
+    @Test
+    void feedRevalidatesUntilAShownColumnChanges() throws Exception {
+        Video video = video("Harbour at dawn", "clip".getBytes());
+        String etag = feedEtag();
+
+        mvc.perform(get("/api/videos").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // a column the feed does not show leaves the validator alone
+        video.setProcessingAttempts(3);
+        video = videoRepository.save(video);
+        assertThat(feedEtag()).isEqualTo(etag);
+
+        video.setTitle("Harbour at dusk");
+        videoRepository.save(video);
+        String retitled = feedEtag();
+        assertThat(retitled).isNotEqualTo(etag);
+
+        video("Breakwater", "clip".getBytes());
+        assertThat(feedEtag()).isNotEqualTo(retitled);
+    }
+
+    @Test
+    void downloadRevalidatesWithoutOpeningTheFile() throws Exception {
+        byte[] bytes = "0123456789".getBytes();
+        Video video = video("Lighthouse", bytes);
+
+        String etag = mvc.perform(get("/api/videos/{id}/download", video.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // with the file gone, anything but a 304 would have to fail opening it
+        RawFile file = video.getVideoFile();
+        storageService.delete(file.getVolume(), file.getStoredFilename());
+
+        mvc.perform(get("/api/videos/{id}/download", video.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    void thumbnailIsServedAndRevalidated() throws Exception {
+        byte[] jpeg = {(byte) 0xff, (byte) 0xd8, 1, 2, 3, (byte) 0xff, (byte) 0xd9};
+        Video video = video("Pier", "clip".getBytes());
+        video.setThumbnailFile(file(jpeg, "image/jpeg"));
+        video = videoRepository.save(video);
+
+        String etag = mvc.perform(get("/api/videos/{id}/thumbnail", video.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes(jpeg))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/videos/{id}/thumbnail", video.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void downloadHonoursRangeOnlyWhileIfRangeMatches() throws Exception {
+        Video video = video("Buoy", "0123456789".getBytes());
+        String etag = mvc.perform(get("/api/videos/{id}/download", video.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/videos/{id}/download", video.getId())
+                        .header(HttpHeaders.RANGE, "bytes=2-4")
+                        .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/10"))
+                .andExpect(content().string("234"));
+
+        mvc.perform(get("/api/videos/{id}/download", video.getId())
+                        .header(HttpHeaders.RANGE, "bytes=2-4")
+                        .header(HttpHeaders.IF_RANGE, "\"replaced\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void thumbnailBatchRevalidates() throws Exception {
+        byte[] jpeg = {(byte) 0xff, (byte) 0xd8, 9, (byte) 0xff, (byte) 0xd9};
+        Video first = video("Slipway", "clip".getBytes());
+        first.setThumbnailFile(file(jpeg, "image/jpeg"));
+        first = videoRepository.save(first);
+        Video second = video("Crane", "clip".getBytes());
+        second.setThumbnailFile(file(jpeg, "image/jpeg"));
+        second = videoRepository.save(second);
+        String ids = first.getId() + "," + second.getId();
+
+        String etag = mvc.perform(get("/api/videos/thumbnails").param("ids", ids))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/videos/thumbnails").param("ids", ids).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    private String feedEtag() throws Exception {
+        return mvc.perform(get("/api/videos"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private Video video(String title, byte[] bytes) throws IOException {
+        Video video = new Video();
+        video.setTitle(title);
+        video.setDescription("Filmed from the jetty");
+        video.setPrivate(false);
+        video.setUploader(owner);
+        video.setVideoFile(file(bytes, "video/mp4"));
+        video.setProcessingStatus(ProcessingStatus.READY);
+        return videoRepository.save(video);
+    }
+
+    private RawFile file(byte[] bytes, String contentType) throws IOException {
+        Path source = Files.write(Files.createTempFile(storage, "source", ".tmp"), bytes);
+        StorageService.StoredFile stored = storageService.storeDerived(source, null,
+                "test/" + UUID.randomUUID(), contentType);
+
+        RawFile file = new RawFile();
+        file.setOriginalFilename("clip");
+        file.setStoredFilename(stored.storedFilename());
+        file.setContentType(contentType);
+        file.setSizeBytes(stored.sizeBytes());
+        file.setFilePath(stored.filePath());
+        file.setVolume(stored.volume());
+        return file;
+    }
+}
@@ -0,0 +1,52 @@
+package com.video.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private final JwtService jwtService = new JwtService(SECRET, 60_000);
+
+    @Test
+    void tokenAuthenticatesItsUserAgainAndAgain() {
+        String token = jwtService.generateToken(42L, "alice");
+
+        // the second call is answered from the verified-token cache
+        assertThat(jwtService.authenticate(token)).isEqualTo(new AuthenticatedUser(42L, "alice"));
+        assertThat(jwtService.authenticate(token)).isEqualTo(new AuthenticatedUser(42L, "alice"));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = new JwtService(SECRET, -1_000).generateToken(42L, "alice");
+
+        assertThatThrownBy(() -> jwtService.authenticate(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(jwtService.isTokenValid(token)).isFalse();
+    }
+
+    @Test
+    void tamperedTokenIsRejectedEvenAfterTheOriginalWasCached() {
+        String token = jwtService.generateToken(42L, "alice");
+        jwtService.authenticate(token);
+
+        String[] parts = token.split("\\.");
+        String otherPayload = jwtService.generateToken(1L, "mallory").split("\\.")[1];
+        String forged = parts[0] + "." + otherPayload + "." + parts[2];
+
+        assertThatThrownBy(() -> jwtService.authenticate(forged)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        String token = new JwtService(SECRET.replace('0', 'x'), 60_000).generateToken(42L, "alice");
+
+        assertThat(jwtService.isTokenValid(token)).isFalse();
+    }
+}
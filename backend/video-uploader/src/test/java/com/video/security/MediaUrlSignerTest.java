@@ -0,0 +1,72 @@
+package com.video.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+class MediaUrlSignerTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private final MediaUrlSigner signer = new MediaUrlSigner(SECRET, Duration.ofHours(1));
+
+    @Test
+    void signatureVerifiesForItsVideoUntilItExpires() {
+        MediaUrlSigner.Signature signature = signer.sign(7, 42);
+
+        assertThat(signer.verify(7, signature)).isTrue();
+        assertThat(signature.expires()).isGreaterThan(Instant.now().getEpochSecond() + 3600);
+        // rounded to the window, so the same viewer gets the same cacheable URL
+        assertThat(signer.sign(7, 42)).isEqualTo(signature);
+    }
+
+    @Test
+    void expiredSignatureIsRejectedEvenWhenItsMacIsValid() {
+        long expired = Instant.now().getEpochSecond() - 1;
+        MediaUrlSigner.Signature signature = new MediaUrlSigner.Signature(42L, expired, mac(SECRET, 7, 42, expired));
+
+        assertThat(signer.verify(7, signature)).isFalse();
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() {
+        MediaUrlSigner.Signature signature = signer.sign(7, 42);
+
+        assertThat(signer.verify(8, signature)).isFalse();
+        assertThat(signer.verify(7, new MediaUrlSigner.Signature(43L, signature.expires(), signature.value()))).isFalse();
+        assertThat(signer.verify(7, new MediaUrlSigner.Signature(42L, signature.expires() + 3600, signature.value()))).isFalse();
+        assertThat(signer.verify(7, new MediaUrlSigner.Signature(42L, signature.expires(), flipLast(signature.value())))).isFalse();
+        assertThat(signer.verify(7, new MediaUrlSigner.Signature(42L, signature.expires(), null))).isFalse();
+    }
+
+    @Test
+    void signatureFromAnotherSecretIsRejected() {
+        MediaUrlSigner other = new MediaUrlSigner(SECRET.replace('0', 'x'), Duration.ofHours(1));
+
+        assertThat(signer.verify(7, other.sign(7, 42))).isFalse();
+    }
+
+    private static String mac(String secret, long videoId, long userId, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal(("media:" + videoId + ":" + userId + ":" + expires).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String flipLast(String value) {
+        char last = value.charAt(value.length() - 1);
+        return value.substring(0, value.length() - 1) + (last == 'A' ? 'B' : 'A');
+    }
+}
@@ -0,0 +1,164 @@
+package com.video.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import com.video.dto.VideoPage;
+import com.video.dto.VideoResponse;
+import com.video.entities.ProcessingStatus;
+import com.video.entities.RawFile;
+import com.video.entities.User;
+import com.video.entities.Video;
+import com.video.repositories.UserRepository;
+import com.video.repositories.VideoRepository;
+import com.video.security.AuthenticatedUser;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * The feed, search and single-video reads select straight into VideoResponse, so each must cost
+ * exactly one prepared statement: no uploader or raw_files rows fetched per video.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "jwt.secret=0123456789abcdef0123456789abcdef0123456789abcdef"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class VideoServiceQueryCountTest {
+
+    private static EmbeddedPostgres postgres;
+    private static Path storage;
+
+    @Autowired
+    private VideoService videoService;
+    @Autowired
+    private VideoRepository videoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User owner;
+    private Video publicVideo;
+    private Video privateVideo;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        storage = Files.createTempDirectory("video-uploader-test");
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("storage.location", storage::toString);
+    }
+
+    @BeforeAll
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        owner = new User();
+        owner.setUsername("owner");
+        owner.setEmail("owner@example.com");
+        owner.setPassword("x");
+        owner = userRepository.save(owner);
+
+        for (int i = 0; i < 30; i++) {
+            publicVideo = video("Mountain bike trail " + i, false);
+        }
+        privateVideo = video("Private mountain notes", true);
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterAll
+    void stop() throws IOException {
+        postgres.close();
+        FileSystemUtils.deleteRecursively(storage);
+    }
+
+    @Test
+    void feedPageIsOneStatement() {
+        VideoPage page = countingOneStatement(() -> videoService.list(null, null, 24));
+
+        assertThat(page.items()).hasSize(24);
+        assertThat(page.items()).allSatisfy(v -> assertThat(v.uploaderUsername()).isEqualTo("owner"));
+
+        countingOneStatement(() -> videoService.list(null, page.nextCursor(), 24));
+    }
+
+    @Test
+    void searchPageIsOneStatement() {
+        VideoPage page = countingOneStatement(() -> videoService.list("mountain", null, 10));
+
+        assertThat(page.items()).hasSize(10);
+        countingOneStatement(() -> videoService.list("mountain", page.nextCursor(), 10));
+    }
+
+    @Test
+    void getOneIsOneStatement() {
+        VideoResponse video = countingOneStatement(() -> videoService.getOne(publicVideo.getId()));
+        assertThat(video.uploaderUsername()).isEqualTo("owner");
+
+        signIn(owner);
+        VideoResponse own = countingOneStatement(() -> videoService.getOne(privateVideo.getId()));
+        assertThat(own.isPrivate()).isTrue();
+    }
+
+    private <T> T countingOneStatement(Supplier<T> call) {
+        statistics.clear();
+        T result = call.get();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        return result;
+    }
+
+    private Video video(String title, boolean isPrivate) {
+        RawFile file = new RawFile();
+        file.setOriginalFilename("video.mp4");
+        file.setStoredFilename(UUID.randomUUID() + ".mp4");
+        file.setContentType("video/mp4");
+        file.setSizeBytes(1);
+        file.setFilePath(file.getStoredFilename());
+
+        Video video = new Video();
+        video.setTitle(title);
+        video.setDescription("Filmed on a helmet camera");
+        video.setPrivate(isPrivate);
+        video.setUploader(owner);
+        video.setVideoFile(file);
+        video.setProcessingStatus(ProcessingStatus.READY);
+        return videoRepository.save(video);
+    }
+
+    private static void signIn(User user) {
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getUsername());
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, null, List.of()));
+    }
+}
@@ -0,0 +1,166 @@
+package com.video.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+
+class FileSystemStorageServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private Path primary;
+    private Path disk2;
+    private FileSystemStorageService storage;
+
+    @BeforeEach
+    void start() {
+        primary = dir.resolve("primary");
+        disk2 = dir.resolve("disk2");
+        storage = storage(false);
+    }
+
+    private FileSystemStorageService storage(boolean contentAddressed) {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(primary.toString());
+        properties.setVolumes(Map.of("disk2", disk2.toString()));
+        properties.setContentAddressed(contentAddressed);
+        FileSystemStorageService service = new FileSystemStorageService(properties);
+        service.init();
+        return service;
+    }
+
+    @Test
+    void uploadIsStoredUnderAShardedNameWithItsDigest() throws IOException {
+        byte[] data = bytes(100_000);
+
+        StorageService.StoredFile stored = storage.store(new MockMultipartFile("file", "trail/ride.mp4", "video/mp4", data));
+
+        assertThat(stored.storedFilename()).matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f-]{36}-trail_ride\\.mp4");
+        assertThat(stored.storedFilename()).startsWith(StorageLayout.shard(stored.storedFilename().substring(6)));
+        assertThat(stored.sha256()).isEqualTo(sha256(data));
+        assertThat(stored.sizeBytes()).isEqualTo(data.length);
+        assertThat(read(stored)).isEqualTo(data);
+    }
+
+    @Test
+    void chunksWrittenOutOfOrderAreAssembledOnTheirStagingVolume() throws IOException {
+        byte[] data = bytes(3 * 1000 + 7);
+        String id = UUID.randomUUID().toString();
+        storage.beginUpload(id);
+
+        storage.writeChunk(id, 2000, slice(data, 2000, data.length), data.length - 2000);
+        storage.writeChunk(id, 0, slice(data, 0, 1000), 1000);
+        // a resent chunk replaces what was there
+        storage.writeChunk(id, 1000, slice(bytes(1000), 0, 1000), 1000);
+        storage.writeChunk(id, 1000, slice(data, 1000, 2000), 1000);
+
+        StorageService.StoredFile stored = storage.storeUpload(id, "clip.mp4", "video/mp4");
+
+        assertThat(stored.sha256()).isEqualTo(sha256(data));
+        assertThat(stored.sizeBytes()).isEqualTo(data.length);
+        assertThat(Path.of(stored.filePath())).startsWith(stored.volume().equals("disk2") ? disk2 : primary);
+        assertThat(read(stored)).isEqualTo(data);
+
+        assertThatThrownBy(() -> storage.writeChunk(id, 0, slice(data, 0, 1000), 1000))
+                .isInstanceOf(StorageFileNotFoundException.class);
+    }
+
+    @Test
+    void chunkForAnUnknownUploadIsRefused() {
+        String id = UUID.randomUUID().toString();
+        assertThatThrownBy(() -> storage.writeChunk(id, 0, new ByteArrayInputStream(new byte[10]), 10))
+                .isInstanceOf(StorageFileNotFoundException.class);
+        assertThatThrownBy(() -> storage.storeUpload(id, "clip.mp4", "video/mp4"))
+                .isInstanceOf(StorageFileNotFoundException.class);
+    }
+
+    @Test
+    void derivedFileStaysOnTheVolumeItWasGiven() throws IOException {
+        Path source = Files.write(dir.resolve("thumb.jpg"), bytes(500));
+
+        StorageService.StoredFile stored = storage.storeDerived(source, "disk2", "thumbnails/ab/cd/1.jpg", "image/jpeg");
+
+        assertThat(stored.volume()).isEqualTo("disk2");
+        assertThat(disk2.resolve("thumbnails/ab/cd/1.jpg")).exists();
+        assertThat(source).doesNotExist();
+        assertThatThrownBy(() -> storage.loadAsResource(null, "thumbnails/ab/cd/1.jpg"))
+                .isInstanceOf(StorageFileNotFoundException.class);
+    }
+
+    @Test
+    void fileInTheLegacyFlatLayoutIsFoundAndRelocated() throws IOException {
+        byte[] data = bytes(300);
+        Files.write(primary.resolve("legacy.mp4"), data);
+
+        try (InputStream in = storage.loadAsResource(null, "legacy.mp4").getInputStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+
+        String moved = storage.relocate(null, "legacy.mp4");
+        assertThat(moved).isEqualTo(StorageLayout.sharded("legacy.mp4"));
+        assertThat(primary.resolve("legacy.mp4")).doesNotExist();
+        assertThat(storage.relocate(null, "legacy.mp4")).isEqualTo(moved);
+        // readers still holding the old name are sent to the new one
+        assertThat(storage.loadAsResource(null, "legacy.mp4").contentLength()).isEqualTo(data.length);
+    }
+
+    @Test
+    void identicalUploadReusesTheBlobAlreadyOnAnotherVolume() throws IOException {
+        storage = storage(true);
+        byte[] data = bytes(20_000);
+        String blob = "cas/" + sha256(data).substring(0, 2) + "/" + sha256(data);
+        storage.storeDerived(Files.write(dir.resolve("blob"), data), "disk2", blob, "video/mp4");
+
+        StorageService.StoredFile stored = storage.store(new MockMultipartFile("file", "again.mp4", "video/mp4", data));
+
+        assertThat(stored.storedFilename()).isEqualTo(blob);
+        assertThat(stored.volume()).isEqualTo("disk2");
+        try (var files = Files.walk(primary)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    private byte[] read(StorageService.StoredFile stored) throws IOException {
+        Resource resource = storage.loadAsResource(stored.volume(), stored.storedFilename());
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static InputStream slice(byte[] data, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(data, from, to));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
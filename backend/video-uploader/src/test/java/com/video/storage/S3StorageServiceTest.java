@@ -0,0 +1,150 @@
+package com.video.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+class S3StorageServiceTest {
+
+    // the smallest part size S3 accepts, so three parts stay cheap
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private S3StandIn s3;
+    private S3StorageService storage;
+
+    @BeforeEach
+    void start() throws IOException {
+        s3 = new S3StandIn(dir.resolve("s3"));
+        storage = storage(false);
+    }
+
+    private S3StorageService storage(boolean contentAddressed) {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(dir.resolve("storage").toString());
+        properties.setContentAddressed(contentAddressed);
+        properties.getS3().setEndpoint(s3.endpoint());
+        properties.getS3().setBucket("videos");
+        properties.getS3().setAccessKey("test");
+        properties.getS3().setSecretKey("test");
+        properties.getS3().setPathStyleAccess(true);
+        properties.getS3().setPartSize(DataSize.ofBytes(PART_SIZE));
+        S3StorageService service = new S3StorageService(properties);
+        service.init();
+        return service;
+    }
+
+    @AfterEach
+    void stop() {
+        storage.destroy();
+        s3.close();
+    }
+
+    @Test
+    void multipartUploadRoundTrips() throws IOException {
+        byte[] data = randomBytes(2 * PART_SIZE + 1234);
+
+        StorageService.StoredFile stored = storage.storeDerived(write("video.mp4", data), S3StorageService.VOLUME, "videos/a.mp4", "video/mp4");
+
+        assertThat(s3.openMultipartUploads()).isZero();
+        Resource resource = storage.loadAsResource(stored.volume(), stored.storedFilename());
+        assertThat(resource.contentLength()).isEqualTo(data.length);
+        try (InputStream in = resource.getInputStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void rangedReadsFetchOnlyTheRange() throws IOException {
+        byte[] data = randomBytes(2 * PART_SIZE + 1234);
+        StorageService.StoredFile stored = storage.storeDerived(write("video.mp4", data), S3StorageService.VOLUME, "videos/b.mp4", "video/mp4");
+
+        RangeReadable resource = (RangeReadable) storage.loadAsResource(stored.volume(), stored.storedFilename());
+
+        assertRange(resource, data, 0, 1);
+        // across the boundary between the first two parts
+        assertRange(resource, data, PART_SIZE - 100, 200);
+        assertRange(resource, data, data.length - 1000, 1000);
+        try (InputStream in = resource.getInputStream(10, 0)) {
+            assertThat(in.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void failedPartAbortsTheMultipartUpload() throws IOException {
+        s3.failPart(2);
+        Path source = write("video.mp4", randomBytes(2 * PART_SIZE + 1234));
+
+        assertThatThrownBy(() -> storage.storeDerived(source, S3StorageService.VOLUME, "videos/c.mp4", "video/mp4"))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("Multipart upload of videos/c.mp4 failed");
+
+        assertThat(s3.openMultipartUploads()).isZero();
+        assertThat(s3.objectCount()).isZero();
+        assertThatThrownBy(() -> storage.loadAsResource(S3StorageService.VOLUME, "videos/c.mp4"))
+                .isInstanceOf(StorageFileNotFoundException.class);
+        // the source is kept, so the caller can retry
+        assertThat(source).exists();
+    }
+
+    @Test
+    void identicalUploadLosingTheRaceKeepsTheFirstObject() throws IOException {
+        storage.destroy();
+        storage = storage(true);
+        byte[] small = randomBytes(1234);
+        // larger than a part, so the conditional write is the multipart completion
+        byte[] large = randomBytes(PART_SIZE + 1234);
+        StorageService.StoredFile first = upload(small);
+        StorageService.StoredFile firstLarge = upload(large);
+
+        // both pass the existence check, so only the conditional write stops them replacing the objects
+        s3.missOnHead();
+        StorageService.StoredFile second = upload(small);
+        StorageService.StoredFile secondLarge = upload(large);
+
+        assertThat(second.storedFilename()).isEqualTo(first.storedFilename()).startsWith("cas/");
+        assertThat(secondLarge.storedFilename()).isEqualTo(firstLarge.storedFilename());
+        assertThat(s3.objectCount()).isEqualTo(2);
+        assertThat(s3.openMultipartUploads()).isZero();
+    }
+
+    private StorageService.StoredFile upload(byte[] data) {
+        String uploadId = UUID.randomUUID().toString();
+        storage.beginUpload(uploadId);
+        storage.writeChunk(uploadId, 0, new ByteArrayInputStream(data), data.length);
+        return storage.storeUpload(uploadId, "video.mp4", "video/mp4");
+    }
+
+    private static void assertRange(RangeReadable resource, byte[] data, int position, int length) throws IOException {
+        try (InputStream in = resource.getInputStream(position, length)) {
+            assertThat(in.readAllBytes()).isEqualTo(Arrays.copyOfRange(data, position, position + length));
+        }
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(dir.resolve(name), data);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}
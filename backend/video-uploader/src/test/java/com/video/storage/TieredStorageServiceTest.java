@@ -0,0 +1,335 @@
+package com.video.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TieredStorageServiceTest {
+
+    // the smallest block the cache allows
+    private static final int BLOCK = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private StubBackend backend;
+    private SimpleMeterRegistry registry;
+    private TieredStorageService cache;
+
+    @BeforeEach
+    void start() {
+        backend = new StubBackend();
+        cache = cache(3 * BLOCK);
+    }
+
+    @AfterEach
+    void stop() {
+        cache.destroy();
+    }
+
+    private TieredStorageService cache(long capacity) {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(dir.resolve("storage").toString());
+        properties.getCache().setEnabled(true);
+        properties.getCache().setLocation(dir.resolve("cache").toString());
+        properties.getCache().setCapacity(DataSize.ofBytes(capacity));
+        properties.getCache().setBlockSize(DataSize.ofBytes(BLOCK));
+        properties.getCache().setWriteBackRetry(Duration.ofMillis(50));
+        registry = new SimpleMeterRegistry();
+        TieredStorageService service = new TieredStorageService(backend, properties, registry);
+        service.init();
+        return service;
+    }
+
+    @Test
+    void rangedReadFillsOnlyTheBlocksItTouches() throws IOException {
+        byte[] data = backend.put("video.mp4", 3 * BLOCK - 100);
+
+        assertThat(read("video.mp4", BLOCK + 10, 100)).isEqualTo(Arrays.copyOfRange(data, BLOCK + 10, BLOCK + 110));
+        assertThat(backend.reads()).containsExactly(range(BLOCK, BLOCK));
+
+        // the cached block is reused, and only the gaps either side of it are fetched
+        assertThat(read("video.mp4", 0, data.length)).isEqualTo(data);
+        assertThat(backend.reads()).containsExactly(range(0, BLOCK), range(2 * BLOCK, BLOCK - 100));
+
+        assertThat(read("video.mp4", 0, data.length)).isEqualTo(data);
+        assertThat(backend.reads()).isEmpty();
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(registry.counter("video.storage.cache.fill").count()).isEqualTo(data.length);
+    }
+
+    @Test
+    void leastRecentlyUsedFileIsEvictedPastCapacity() throws IOException {
+        byte[] first = backend.put("first.mp4", 2 * BLOCK);
+        byte[] second = backend.put("second.mp4", 2 * BLOCK);
+
+        read("first.mp4", 0, first.length);
+        read("second.mp4", 0, second.length);
+        backend.reads();
+
+        assertThat(registry.counter("video.storage.cache.evictions").count()).isEqualTo(1);
+        assertThat(cacheFiles()).hasSize(1);
+
+        assertThat(read("second.mp4", 0, second.length)).isEqualTo(second);
+        assertThat(backend.reads()).isEmpty();
+        assertThat(read("first.mp4", 0, first.length)).isEqualTo(first);
+        assertThat(backend.reads()).containsExactly(range(0, 2 * BLOCK));
+    }
+
+    @Test
+    void fileLargerThanTheCacheBypassesIt() throws IOException {
+        byte[] data = backend.put("huge.mp4", 4 * BLOCK);
+
+        assertThat(read("huge.mp4", 0, data.length)).isEqualTo(data);
+        assertThat(requests("bypass")).isEqualTo(1);
+        assertThat(cacheFiles()).isEmpty();
+    }
+
+    @Test
+    void newFileIsServedFromTheCacheAndWrittenBack() throws Exception {
+        byte[] data = bytes(BLOCK + 5);
+
+        StorageService.StoredFile stored = cache.storeDerived(source(data), null, "renditions/1/seg.m4s", "video/iso.segment");
+        assertThat(stored.filePath()).isEqualTo("stub:renditions/1/seg.m4s");
+
+        awaitWrittenBack();
+        assertThat(backend.objects.get("renditions/1/seg.m4s")).isEqualTo(data);
+        assertThat(read("renditions/1/seg.m4s", 0, data.length)).isEqualTo(data);
+        assertThat(backend.reads()).isEmpty();
+    }
+
+    @Test
+    void unwrittenFilesArePinnedAndRefusedPastCapacity() throws Exception {
+        backend.failing = true;
+        cache.storeDerived(source(bytes(2 * BLOCK)), null, "pinned.mp4", "video/mp4");
+
+        assertThatThrownBy(() -> cache.storeDerived(source(bytes(2 * BLOCK)), null, "refused.mp4", "video/mp4"))
+                .isInstanceOf(StorageFullException.class);
+
+        // a read that needs the room cannot evict the pinned file
+        byte[] other = backend.put("other.mp4", 2 * BLOCK);
+        assertThat(read("other.mp4", 0, other.length)).isEqualTo(other);
+        assertThat(read("pinned.mp4", 0, 2 * BLOCK)).hasSize(2 * BLOCK);
+        assertThat(backend.objects).doesNotContainKey("pinned.mp4");
+    }
+
+    @Test
+    void failedWriteBackIsRetriedAndResumedAfterARestart() throws Exception {
+        byte[] data = bytes(BLOCK);
+        backend.failing = true;
+        cache.storeDerived(source(data), null, "retried.mp4", "video/mp4");
+        Thread.sleep(200);
+        assertThat(registry.counter("video.storage.cache.writeback", "outcome", "error").count()).isGreaterThan(1);
+
+        cache.destroy();
+        backend.failing = false;
+        cache = cache(3 * BLOCK);
+
+        awaitWrittenBack();
+        assertThat(backend.objects.get("retried.mp4")).isEqualTo(data);
+    }
+
+    @Test
+    void deleteDropsTheCachedCopyAndTheBackendObject() throws IOException {
+        backend.put("gone.mp4", BLOCK);
+        read("gone.mp4", 0, BLOCK);
+
+        cache.delete(null, "gone.mp4");
+
+        assertThat(cacheFiles()).isEmpty();
+        assertThat(backend.objects).doesNotContainKey("gone.mp4");
+        assertThatThrownBy(() -> cache.loadAsResource(null, "gone.mp4")).isInstanceOf(StorageFileNotFoundException.class);
+    }
+
+    private byte[] read(String name, long position, long length) throws IOException {
+        Resource resource = cache.loadAsResource(null, name);
+        try (InputStream in = ((RangeReadable) resource).getInputStream(position, length)) {
+            return in.readAllBytes();
+        } finally {
+            StorageService.release(resource);
+        }
+    }
+
+    private double requests(String result) {
+        return registry.counter("video.storage.cache.requests", "result", result).count();
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(dir.resolve("cache/blocks"))) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private void awaitWrittenBack() throws Exception {
+        for (int i = 0; i < 100 && registry.get("video.storage.cache.writeback.pending").gauge().value() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(registry.get("video.storage.cache.writeback.pending").gauge().value()).isZero();
+        try (Stream<Path> files = Files.list(dir.resolve("cache/pending"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private Path source(byte[] data) throws IOException {
+        return Files.write(Files.createTempFile(dir, "derived", ".tmp"), data);
+    }
+
+    private static long[] range(long position, long length) {
+        return new long[]{position, length};
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    /** An in-memory backend that records every ranged read and can be told to refuse writes. */
+    private static final class StubBackend implements StorageService {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final List<long[]> reads = new ArrayList<>();
+        volatile boolean failing;
+
+        byte[] put(String name, int length) {
+            byte[] data = bytes(length);
+            objects.put(name, data);
+            return data;
+        }
+
+        // the reads since the last call
+        List<long[]> reads() {
+            synchronized (reads) {
+                List<long[]> since = List.copyOf(reads);
+                reads.clear();
+                return since;
+            }
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public Resource loadAsResource(String volume, String filename) {
+            byte[] data = objects.get(filename);
+            if (data == null) {
+                throw new StorageFileNotFoundException("Could not read file: " + filename);
+            }
+            return new StubResource(filename, data, reads);
+        }
+
+        @Override
+        public StoredFile storeDerived(Path source, String volume, String storedFilename, String contentType) {
+            if (failing) {
+                throw new StorageException("Backend unavailable");
+            }
+            try {
+                objects.put(storedFilename, Files.readAllBytes(source));
+                Files.delete(source);
+            } catch (IOException e) {
+                throw new StorageException("Failed to store " + storedFilename, e);
+            }
+            return new StoredFile(storedFilename, storedFilename, contentType, objects.get(storedFilename).length,
+                    locate(volume, storedFilename), null, volume);
+        }
+
+        @Override
+        public void delete(String volume, String storedFilename) {
+            objects.remove(storedFilename);
+        }
+
+        @Override
+        public String mediaInput(String volume, String storedFilename) {
+            return locate(volume, storedFilename);
+        }
+
+        @Override
+        public String locate(String volume, String storedFilename) {
+            return "stub:" + storedFilename;
+        }
+
+        @Override
+        public StoredFile store(MultipartFile file) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void beginUpload(String uploadId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long writeChunk(String uploadId, long position, InputStream data, long length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public StoredFile storeUpload(String uploadId, String originalFilename, String contentType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteUpload(String uploadId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class StubResource extends AbstractResource implements RangeReadable {
+        private final String name;
+        private final byte[] data;
+        private final List<long[]> reads;
+
+        StubResource(String name, byte[] data, List<long[]> reads) {
+            this.name = name;
+            this.data = data;
+            this.reads = reads;
+        }
+
+        @Override
+        public long contentLength() {
+            return data.length;
+        }
+
+        @Override
+        public String getDescription() {
+            return "stub " + name;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return getInputStream(0, data.length);
+        }
+
+        @Override
+        public InputStream getInputStream(long position, long length) throws IOException {
+            synchronized (reads) {
+                reads.add(range(position, length));
+            }
+            return new ByteArrayInputStream(data, (int) position, (int) length);
+        }
+    }
+}
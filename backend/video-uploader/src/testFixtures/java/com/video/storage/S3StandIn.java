@@ -0,0 +1,357 @@
+package com.video.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Just enough of the S3 REST API, served from a local directory, for the load test's
+ * {@code --storage=s3} and the S3 storage tests: bucket HEAD/PUT, object PUT/GET (with Range)/HEAD/DELETE
+ * and multipart uploads, path-style only. Signatures are not checked; aws-chunked bodies are decoded.
+ * {@code If-None-Match: *} on a PUT or a multipart completion is honoured with a 412 when the key exists.
+ */
+public final class S3StandIn implements AutoCloseable {
+
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Path dir;
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, Path> uploads = new ConcurrentHashMap<>();
+    private final Set<String> failingParts = ConcurrentHashMap.newKeySet();
+    private volatile boolean headMisses;
+
+    public S3StandIn(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String endpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /** Answers every upload of part {@code partNumber} with a 500 from now on. */
+    public void failPart(int partNumber) {
+        failingParts.add(String.valueOf(partNumber));
+    }
+
+    /**
+     * Answers every HEAD with a 404 from now on, as if each object had been written just after the
+     * client checked for it.
+     */
+    public void missOnHead() {
+        headMisses = true;
+    }
+
+    /** Multipart uploads initiated but neither completed nor aborted. */
+    public int openMultipartUploads() {
+        return uploads.size();
+    }
+
+    public int objectCount() {
+        return objects.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8).substring(1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            int slash = path.indexOf('/');
+            String bucket = (slash < 0) ? path : path.substring(0, slash);
+            String key = (slash < 0) ? "" : path.substring(slash + 1);
+            String method = exchange.getRequestMethod();
+
+            if (key.isEmpty()) {
+                if ("PUT".equals(method)) {
+                    buckets.add(bucket);
+                    send(exchange, 200, null);
+                } else {
+                    send(exchange, buckets.contains(bucket) ? 200 : 404, null);
+                }
+                return;
+            }
+
+            String id = bucket + "/" + key;
+            switch (method) {
+                case "PUT" -> {
+                    if (query.containsKey("uploadId") && failingParts.contains(query.get("partNumber"))) {
+                        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                        send(exchange, 500, "<Error><Code>InternalError</Code></Error>");
+                    } else if (query.containsKey("uploadId")) {
+                        Path part = uploads.get(query.get("uploadId")).resolve(query.get("partNumber"));
+                        exchange.getResponseHeaders().set("ETag", write(exchange, part));
+                        send(exchange, 200, null);
+                    } else if (exists(exchange, id)) {
+                        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                        send(exchange, 412, "<Error><Code>PreconditionFailed</Code></Error>");
+                    } else {
+                        Path file = dir.resolve(UUID.randomUUID().toString());
+                        String etag = write(exchange, file);
+                        put(id, file, contentType(exchange), etag);
+                        exchange.getResponseHeaders().set("ETag", etag);
+                        send(exchange, 200, null);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        String uploadId = UUID.randomUUID().toString();
+                        uploads.put(uploadId, Files.createDirectories(dir.resolve("mpu-" + uploadId)));
+                        send(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + key
+                                + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+                    } else {
+                        complete(exchange, id, bucket, key, query.get("uploadId"));
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        Path parts = uploads.remove(query.get("uploadId"));
+                        if (parts != null) {
+                            deleteTree(parts);
+                        }
+                    } else {
+                        StoredObject removed = objects.remove(id);
+                        if (removed != null) {
+                            Files.deleteIfExists(removed.file());
+                        }
+                    }
+                    send(exchange, 204, null);
+                }
+                case "HEAD" -> get(exchange, headMisses ? null : objects.get(id), true);
+                case "GET" -> get(exchange, objects.get(id), false);
+                default -> send(exchange, 405, null);
+            }
+        } catch (RuntimeException e) {
+            send(exchange, 500, "<Error><Code>InternalError</Code><Message>" + e + "</Message></Error>");
+        }
+    }
+
+    private void complete(HttpExchange exchange, String id, String bucket, String key, String uploadId) throws IOException {
+        if (exists(exchange, id)) {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            send(exchange, 412, "<Error><Code>PreconditionFailed</Code></Error>");
+            return;
+        }
+        Path parts = uploads.remove(uploadId);
+        if (parts == null) {
+            send(exchange, 404, "<Error><Code>NoSuchUpload</Code></Error>");
+            return;
+        }
+
+        List<Integer> numbers = new ArrayList<>();
+        Matcher m = PART_NUMBER.matcher(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        while (m.find()) {
+            numbers.add(Integer.parseInt(m.group(1)));
+        }
+
+        Path file = dir.resolve(UUID.randomUUID().toString());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int n : numbers) {
+                Files.copy(parts.resolve(String.valueOf(n)), out);
+            }
+        }
+        String etag = "\"" + UUID.randomUUID().toString().replace("-", "") + "-" + numbers.size() + "\"";
+        put(id, file, null, etag);
+        deleteTree(parts);
+
+        send(exchange, 200, "<CompleteMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + key
+                + "</Key><ETag>" + etag + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    // a conditional write that must not replace an existing object
+    private boolean exists(HttpExchange exchange, String id) {
+        return "*".equals(exchange.getRequestHeaders().getFirst("If-None-Match")) && objects.containsKey(id);
+    }
+
+    private void get(HttpExchange exchange, StoredObject object, boolean head) throws IOException {
+        if (object == null) {
+            send(exchange, 404, head ? null : "<Error><Code>NoSuchKey</Code><Message>The specified key does not exist.</Message></Error>");
+            return;
+        }
+
+        long size = Files.size(object.file());
+        long start = 0;
+        long end = size - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring(6).split("-", 2);
+            start = Long.parseLong(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Long.parseLong(bounds[1]));
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + size);
+        }
+
+        long length = end - start + 1;
+        exchange.getResponseHeaders().set("ETag", object.etag());
+        exchange.getResponseHeaders().set("Last-Modified", object.lastModified());
+        exchange.getResponseHeaders().set("Content-Type", object.contentType());
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        if (head) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, (length == 0) ? -1 : length);
+        try (InputStream in = Files.newInputStream(object.file()); OutputStream out = exchange.getResponseBody()) {
+            in.skipNBytes(start);
+            in.transferTo(new OutputStream() {
+                private long remaining = length;
+
+                @Override
+                public void write(int b) throws IOException {
+                    if (remaining-- > 0) {
+                        out.write(b);
+                    }
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    int n = (int) Math.min(len, remaining);
+                    if (n > 0) {
+                        out.write(b, off, n);
+                        remaining -= n;
+                    }
+                }
+            });
+        }
+    }
+
+    private void put(String id, Path file, String contentType, String etag) throws IOException {
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+        StoredObject previous = objects.put(id, new StoredObject(file,
+                (contentType == null) ? "application/octet-stream" : contentType, etag, lastModified));
+        if (previous != null) {
+            Files.deleteIfExists(previous.file());
+        }
+    }
+
+    // returns the quoted MD5 ETag of the decoded body
+    private String write(HttpExchange exchange, Path file) throws IOException {
+        MessageDigest md5 = md5();
+        String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        boolean chunked = (sha != null && sha.startsWith("STREAMING-")) || (encoding != null && encoding.contains("aws-chunked"));
+
+        try (InputStream in = new DigestInputStream(chunked ? decodeChunked(exchange.getRequestBody()) : exchange.getRequestBody(), md5)) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return "\"" + HexFormat.of().formatHex(md5.digest()) + "\"";
+    }
+
+    // aws-chunked: "<hex size>[;chunk-signature=...]\r\n<bytes>\r\n" repeated, ending with a zero-size chunk
+    private static InputStream decodeChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        while (true) {
+            String header = readLine(in);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt((semicolon < 0) ? header.trim() : header.substring(0, semicolon).trim(), 16);
+            if (size == 0) {
+                break;
+            }
+            decoded.write(in.readNBytes(size));
+            readLine(in);
+        }
+        return new ByteArrayInputStream(decoded.toByteArray());
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String xml) throws IOException {
+        if (xml == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static String contentType(HttpExchange exchange) {
+        return exchange.getRequestHeaders().getFirst("Content-Type");
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode((eq < 0) ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            query.put(name, (eq < 0) ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (var paths = Files.walk(root)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredObject(Path file, String contentType, String etag, String lastModified) {}
+}
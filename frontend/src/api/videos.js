@@ -1,29 +1,41 @@
 import api from './client'
 
-export async function listVideos(search) {
+export async function listVideos(search, { cursor, limit } = {}) {
   const res = await api.get('/videos', {
-    
-    params: search ? { search, _ts: Date.now() } : { _ts: Date.now() },
-    headers: {
-      'Cache-Control': 'no-cache',
-      Pragma: 'no-cache',
-    },
+    params: { search: search || undefined, cursor, limit },
   })
   return res.data
 }
 
+export async function suggestVideos(q) {
+  const res = await api.get('/videos/suggest', { params: { q } })
+  return res.data
+}
+
 export async function getVideo(id) {
   const res = await api.get(`/videos/${id}`)
   return res.data
 }
 
-export async function fetchThumbnailBlob(id) {
-  const res = await api.get(`/videos/${id}/thumbnail`, { responseType: 'blob' })
-  return res.data
+// one multipart/form-data response with a part per visible thumbnail, named by video id
+export async function fetchThumbnailBatch(ids) {
+  const res = await api.get('/videos/thumbnails', {
+    params: { ids: ids.join(',') },
+    responseType: 'blob',
+  })
+  const form = await new Response(res.data, {
+    headers: { 'Content-Type': res.headers['content-type'] },
+  }).formData()
+
+  const blobs = new Map()
+  for (const [id, file] of form.entries()) {
+    blobs.set(Number(id), file)
+  }
+  return blobs
 }
 
-export async function fetchVideoBlob(id) {
-  const res = await api.get(`/videos/${id}/download`, { responseType: 'blob' })
+export async function getMediaUrls(id) {
+  const res = await api.get(`/videos/${id}/media-urls`)
   return res.data
 }
 
@@ -1,33 +1,15 @@
 import { useEffect, useState } from 'react'
-import { fetchThumbnailBlob } from '../api/videos'
 
-export default function VideoThumbnail({ videoId, alt }) {
-  const [src, setSrc] = useState('')
+export default function VideoThumbnail({ videoId, alt, isPrivate, privateSrc }) {
   const [error, setError] = useState(false)
 
   useEffect(() => {
-    let active = true
-    let objectUrl = ''
+    setError(false)
+  }, [videoId, privateSrc])
 
-    async function run() {
-      setError(false)
-      setSrc('')
-      try {
-        const blob = await fetchThumbnailBlob(videoId)
-        objectUrl = URL.createObjectURL(blob)
-        if (active) setSrc(objectUrl)
-      } catch {
-        if (active) setError(true)
-      }
-    }
-
-    run()
-
-    return () => {
-      active = false
-      if (objectUrl) URL.revokeObjectURL(objectUrl)
-    }
-  }, [videoId])
+  // public thumbnails load straight from the URL so the browser can cache them;
+  // private ones need the bearer token and arrive as blob URLs from the page's batch request
+  const src = isPrivate ? privateSrc : `/api/videos/${videoId}/thumbnail`
 
   if (error) {
     return (
@@ -66,6 +48,7 @@ export default function VideoThumbnail({ videoId, alt }) {
     <img
       src={src}
       alt={alt}
+      onError={() => setError(true)}
       style={{ width: '100%', height: '100%', objectFit: 'cover', display: 'block' }}
     />
   )
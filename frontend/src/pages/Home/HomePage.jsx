@@ -3,7 +3,7 @@ import { Link, useNavigate, useLocation } from 'react-router-dom'
 import { FaLock, FaUser } from 'react-icons/fa'
 import { IoCalendarNumber } from 'react-icons/io5'
 
-import { listVideos } from '../../api/videos'
+import { fetchThumbnailBatch, listVideos, suggestVideos } from '../../api/videos'
 import VideoThumbnail from '../../components/VideoThumbnail.jsx'
 import './HomePage.css'
 
@@ -31,14 +31,21 @@ export default function HomePage() {
   const [query, setQuery] = useState('')
 
   const [videos, setVideos] = useState([])
+  const [nextCursor, setNextCursor] = useState(null)
+  const [loadingMore, setLoadingMore] = useState(false)
   const [loading, setLoading] = useState(false)
   const [error, setError] = useState('')
 
   const [suggestions, setSuggestions] = useState([])
   const [showSuggestions, setShowSuggestions] = useState(false)
 
+  const [privateThumbs, setPrivateThumbs] = useState({})
+
   const debounceRef = useRef(null)
   const listRequestInFlightRef = useRef(false)
+  const loadedMoreRef = useRef(false)
+  const thumbUrlsRef = useRef({})
+  const thumbsInFlightRef = useRef(false)
 
   useEffect(() => {
     if (location.pathname === '/' && location.state?.clearSearch) {
@@ -53,6 +60,7 @@ export default function HomePage() {
 
   useEffect(() => {
     let cancelled = false
+    loadedMoreRef.current = false
 
     const POLL_MS = 5000
 
@@ -64,7 +72,21 @@ export default function HomePage() {
       setError('')
       try {
         const data = await listVideos(query)
-        if (!cancelled) setVideos(Array.isArray(data) ? data : [])
+        const items = Array.isArray(data?.items) ? data.items : []
+        if (cancelled) return
+
+        if (!loadedMoreRef.current) {
+          setVideos(items)
+          setNextCursor(data?.nextCursor ?? null)
+        } else {
+          // keep the older pages the user already loaded; only the first page is refreshed
+          const ids = new Set(items.map((v) => v.id))
+          const oldest = items.length ? new Date(items[items.length - 1].createdAt) : null
+          setVideos((prev) => [
+            ...items,
+            ...prev.filter((v) => !ids.has(v.id) && (!oldest || new Date(v.createdAt) <= oldest)),
+          ])
+        }
       } catch (e) {
         const msg = e?.response?.data?.message || e?.response?.data || 'Failed to load videos'
         if (!cancelled) setError(String(msg))
@@ -96,6 +118,32 @@ export default function HomePage() {
     }
   }, [query])
 
+  useEffect(() => {
+    const missing = videos.filter((v) => v.isPrivate && !thumbUrlsRef.current[v.id]).map((v) => v.id)
+    if (missing.length === 0 || thumbsInFlightRef.current) return
+    thumbsInFlightRef.current = true
+
+    // every private thumbnail on the page comes back in one request
+    fetchThumbnailBatch(missing.slice(0, 100))
+      .then((blobs) => {
+        blobs.forEach((blob, id) => {
+          thumbUrlsRef.current[id] = URL.createObjectURL(blob)
+        })
+        setPrivateThumbs({ ...thumbUrlsRef.current })
+      })
+      .catch(() => {})
+      .finally(() => {
+        thumbsInFlightRef.current = false
+      })
+  }, [videos])
+
+  useEffect(() => {
+    const urls = thumbUrlsRef.current
+    return () => {
+      Object.values(urls).forEach((url) => URL.revokeObjectURL(url))
+    }
+  }, [])
+
   useEffect(() => {
     if (debounceRef.current) {
       clearTimeout(debounceRef.current)
@@ -110,8 +158,8 @@ export default function HomePage() {
 
     debounceRef.current = setTimeout(async () => {
       try {
-        const data = await listVideos(trimmed)
-        setSuggestions((Array.isArray(data) ? data : []).slice(0, 8))
+        const data = await suggestVideos(trimmed)
+        setSuggestions(Array.isArray(data) ? data : [])
       } catch {
         setSuggestions([])
       }
@@ -122,6 +170,26 @@ export default function HomePage() {
     }
   }, [input])
 
+  const onLoadMore = async () => {
+    if (!nextCursor || loadingMore) return
+    setLoadingMore(true)
+    try {
+      const data = await listVideos(query, { cursor: nextCursor })
+      const items = Array.isArray(data?.items) ? data.items : []
+      loadedMoreRef.current = true
+      setVideos((prev) => {
+        const ids = new Set(prev.map((v) => v.id))
+        return [...prev, ...items.filter((v) => !ids.has(v.id))]
+      })
+      setNextCursor(data?.nextCursor ?? null)
+    } catch (e) {
+      const msg = e?.response?.data?.message || e?.response?.data || 'Failed to load videos'
+      setError(String(msg))
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   const onSubmit = (e) => {
     e.preventDefault()
     setQuery(input.trim())
@@ -192,11 +260,7 @@ export default function HomePage() {
                   onMouseDown={(e) => e.preventDefault()}
                   onClick={() => onPickSuggestion(v)}
                 >
-                  <div style={{ display: 'flex', alignItems: 'center', gap: 10 }}>
-                    <span style={{ fontWeight: 700 }}>{v.title}</span>
-                    {v.isPrivate && <PrivateBadge />}
-                  </div>
-                  <div style={{ fontSize: 12, opacity: 0.65 }}>{v.uploaderUsername}</div>
+                  <span style={{ fontWeight: 700 }}>{v.title}</span>
                 </button>
               ))}
             </div>
@@ -214,7 +278,12 @@ export default function HomePage() {
             <Link key={v.id} to={`/videos/${v.id}`} className="cardLink">
               <div className="card">
                 <div className="thumbWrap">
-                  <VideoThumbnail videoId={v.id} alt={v.title} />
+                  <VideoThumbnail
+                    videoId={v.id}
+                    alt={v.title}
+                    isPrivate={v.isPrivate}
+                    privateSrc={privateThumbs[v.id]}
+                  />
                 </div>
 
                 <div className="cardBody">
@@ -240,6 +309,12 @@ export default function HomePage() {
             </Link>
           ))}
         </div>
+
+        {!loading && nextCursor && (
+          <button type="button" className="loadMoreBtn" onClick={onLoadMore} disabled={loadingMore}>
+            {loadingMore ? 'Loading…' : 'Load more'}
+          </button>
+        )}
       </section>
     </div>
   )
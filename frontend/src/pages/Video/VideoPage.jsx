@@ -2,7 +2,7 @@ import { useEffect, useMemo, useState } from 'react'
 import { Link, useParams } from 'react-router-dom'
 import { FaLock } from 'react-icons/fa'
 
-import { fetchThumbnailBlob, fetchVideoBlob, getVideo } from '../../api/videos'
+import { getMediaUrls, getVideo } from '../../api/videos'
 import './VideoPage.css'
 
 function PrivateBadge() {
@@ -86,20 +86,17 @@ export default function VideoPage() {
 
   useEffect(() => {
     let cancelled = false
-    let nextVideoUrl = ''
-    let nextThumbUrl = ''
 
     async function run() {
       if (!video) return
       setLoadingMedia(true)
       try {
-        const tb = await fetchThumbnailBlob(video.id)
-        nextThumbUrl = URL.createObjectURL(tb)
-        if (!cancelled) setThumbUrl(nextThumbUrl)
-
-        const vb = await fetchVideoBlob(video.id)
-        nextVideoUrl = URL.createObjectURL(vb)
-        if (!cancelled) setVideoUrl(nextVideoUrl)
+        // the player streams these directly; private links carry a short-lived signature
+        const urls = await getMediaUrls(video.id)
+        if (!cancelled) {
+          setThumbUrl(urls.thumbnailUrl || '')
+          setVideoUrl(urls.videoUrl)
+        }
       } catch (e) {
         const status = e?.response?.status
         if (!cancelled) {
@@ -120,8 +117,6 @@ export default function VideoPage() {
 
     return () => {
       cancelled = true
-      if (nextVideoUrl) URL.revokeObjectURL(nextVideoUrl)
-      if (nextThumbUrl) URL.revokeObjectURL(nextThumbUrl)
       setVideoUrl('')
       setThumbUrl('')
     }